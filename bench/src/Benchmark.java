@@ -0,0 +1,39 @@
+import java.util.List;
+
+/**
+ * One benchmark run by Benchmarks
+ * @note each parameter value is measured in its own forked JVM, so setup state never leaks between runs
+ */
+public interface Benchmark {
+    /**
+     * @return the parameter values to measure, e.g. player counts, a single empty string if there are none
+     */
+    default List<String> params() {
+        return List.of("");
+    }
+
+    default void setup(String param) throws Exception {
+    }
+
+    /**
+     * the code being measured, whatever it returns is handed to Blackhole so the JIT cannot remove it
+     */
+    Object invoke() throws Exception;
+
+    /**
+     * @return how many operations one invoke performs, e.g. the guesses in one game
+     */
+    default int operationsPerInvocation() {
+        return 1;
+    }
+
+    default void teardown() throws Exception {
+    }
+
+    /**
+     * @return true if the benchmark writes files, it then runs in a temporary directory instead of the project root
+     */
+    default boolean needsScratchDirectory() {
+        return false;
+    }
+}
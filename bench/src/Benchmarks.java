@@ -0,0 +1,246 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Runs the benchmarks, each parameter value in its own forked JVM with warmup and measured iterations
+ * usage: java Benchmarks [regex] [-wi warmups] [-i iterations] [-r seconds] [-f forks]
+ *                        [-jvmArgs "args"] [-o results.csv] [-baseline results.csv] [-tolerance 0.1] [-l]
+ * @note with -baseline every result is compared to an earlier -o file, and the exit code is 1 if any benchmark
+ * got slower by more than the tolerance, so the run can gate a change
+ */
+public class Benchmarks {
+    // every benchmark by the name used to select it
+    private static final Map<String, Supplier<Benchmark>> BENCHMARKS = new LinkedHashMap<>();
+
+    static {
+        BENCHMARKS.put("GameSession.guess", GameSessionBenchmarks.Guess::new);
+        BENCHMARKS.put("GameSession.gameState", GameSessionBenchmarks.GameState::new);
+        BENCHMARKS.put("GameSession.getObfuscatedWord", GameSessionBenchmarks.ObfuscatedWord::new);
+        BENCHMARKS.put("WordBank.load", WordBankBenchmarks.Load::new);
+        BENCHMARKS.put("WordBank.getRandomWord", WordBankBenchmarks.RandomWord::new);
+        BENCHMARKS.put("WordSelector.next", WordBankBenchmarks.Select::new);
+        BENCHMARKS.put("DataStore.savePlayers", PersistenceBenchmarks.SavePlayers::new);
+        BENCHMARKS.put("DataStore.loadPlayers", PersistenceBenchmarks.LoadPlayers::new);
+        BENCHMARKS.put("Player.recordScore", PersistenceBenchmarks.RecordScore::new);
+        BENCHMARKS.put("Solver.index", SolverBenchmarks.Index::new);
+        BENCHMARKS.put("Solver.bestLetter", SolverBenchmarks.BestLetter::new);
+    }
+
+    // one measured benchmark: mean operations per second and the standard deviation across iterations
+    private record Result(String name, String param, double score, double error) {}
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("-run")) {
+            // child JVM: -run name param warmups iterations seconds
+            runFork(args[1], args[2], Integer.parseInt(args[3]), Integer.parseInt(args[4]), Double.parseDouble(args[5]));
+            return;
+        }
+        Pattern filter = Pattern.compile(".*");
+        int warmups = 3;
+        int iterations = 5;
+        double seconds = 1.0;
+        int forks = 1;
+        String jvmArgs = "-Xmx3g";
+        Path output = null;
+        Path baseline = null;
+        double tolerance = 0.10;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-wi" -> warmups = Integer.parseInt(args[++i]);
+                case "-i" -> iterations = Integer.parseInt(args[++i]);
+                case "-r" -> seconds = Double.parseDouble(args[++i]);
+                case "-f" -> forks = Integer.parseInt(args[++i]);
+                case "-jvmArgs" -> jvmArgs = args[++i];
+                case "-o" -> output = Path.of(args[++i]);
+                case "-baseline" -> baseline = Path.of(args[++i]);
+                case "-tolerance" -> tolerance = Double.parseDouble(args[++i]);
+                case "-l" -> {
+                    BENCHMARKS.keySet().forEach(System.out::println);
+                    return;
+                }
+                default -> filter = Pattern.compile(args[i]);
+            }
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (Map.Entry<String, Supplier<Benchmark>> entry : BENCHMARKS.entrySet()) {
+            if (!filter.matcher(entry.getKey()).find()) {
+                continue;
+            }
+            Benchmark benchmark = entry.getValue().get();
+            for (String param : benchmark.params()) {
+                List<Double> scores = new ArrayList<>();
+                for (int f = 0; f < forks; f++) {
+                    scores.addAll(fork(entry.getKey(), param, warmups, iterations, seconds, jvmArgs,
+                            benchmark.needsScratchDirectory()));
+                }
+                Result result = summarise(entry.getKey(), param, scores);
+                results.add(result);
+                System.out.printf("%-32s %-8s %16.1f +- %.1f ops/s%n", result.name(), result.param(), result.score(), result.error());
+            }
+        }
+
+        if (output != null) {
+            writeResults(output, results);
+        }
+        if (baseline != null && !compare(readResults(baseline), results, tolerance)) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * starts a child JVM for one benchmark and parameter, and reads back the score of each measured iteration
+     */
+    private static List<Double> fork(String name, String param, int warmups, int iterations, double seconds,
+                                     String jvmArgs, boolean scratch) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        for (String arg : jvmArgs.trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                command.add(arg);
+            }
+        }
+        // the classpath is made absolute because a scratch benchmark runs in another directory
+        List<String> classpath = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            classpath.add(Path.of(entry).toAbsolutePath().toString());
+        }
+        command.addAll(List.of("-cp", String.join(File.pathSeparator, classpath), "Benchmarks", "-run", name, param,
+                String.valueOf(warmups), String.valueOf(iterations), String.valueOf(seconds)));
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+        Path directory = scratch ? Files.createTempDirectory("hangman-bench") : null;
+        if (directory != null) {
+            builder.directory(directory.toFile());
+        }
+        List<Double> scores = new ArrayList<>();
+        Process process = builder.start();
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                if (line.startsWith("ITERATION ")) {
+                    scores.add(Double.parseDouble(line.substring("ITERATION ".length())));
+                } else {
+                    System.out.println("  " + line);
+                }
+            }
+        }
+        int exit = process.waitFor();
+        if (directory != null) {
+            deleteRecursively(directory);
+        }
+        if (exit != 0) {
+            throw new IllegalStateException(name + " " + param + " failed with exit code " + exit);
+        }
+        return scores;
+    }
+
+    /**
+     * runs inside the child JVM, printing one ITERATION line per measured iteration
+     */
+    private static void runFork(String name, String param, int warmups, int iterations, double seconds) throws Exception {
+        Benchmark benchmark = BENCHMARKS.get(name).get();
+        benchmark.setup(param);
+        long budget = (long) (seconds * 1e9);
+        // grows the batch until one batch takes about a millisecond, so reading the clock stays out of the score
+        int batch = 1;
+        while (batch < (1 << 24)) {
+            long start = System.nanoTime();
+            for (int i = 0; i < batch; i++) {
+                Blackhole.consume(benchmark.invoke());
+            }
+            if (System.nanoTime() - start > 1_000_000) {
+                break;
+            }
+            batch *= 2;
+        }
+        for (int i = 0; i < warmups + iterations; i++) {
+            long invocations = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                for (int b = 0; b < batch; b++) {
+                    Blackhole.consume(benchmark.invoke());
+                }
+                invocations += batch;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < budget);
+            double score = invocations * (double) benchmark.operationsPerInvocation() / (elapsed / 1e9);
+            if (i < warmups) {
+                System.out.printf("warmup %d: %.1f ops/s%n", i + 1, score);
+            } else {
+                System.out.println("ITERATION " + score);
+            }
+        }
+        benchmark.teardown();
+        // DataStore's shutdown hook flushes anything a benchmark left queued before the fork exits
+        System.exit(0);
+    }
+
+    private static Result summarise(String name, String param, List<Double> scores) {
+        double mean = scores.stream().mapToDouble(Double::doubleValue).average().orElse(0);
+        double variance = scores.stream().mapToDouble(s -> (s - mean) * (s - mean)).sum() / Math.max(1, scores.size() - 1);
+        return new Result(name, param, mean, Math.sqrt(variance));
+    }
+
+    private static void writeResults(Path path, List<Result> results) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add("benchmark,param,score,error");
+        for (Result r : results) {
+            lines.add(r.name() + "," + r.param() + "," + r.score() + "," + r.error());
+        }
+        Files.write(path, lines);
+    }
+
+    private static Map<String, Result> readResults(Path path) throws IOException {
+        Map<String, Result> results = new HashMap<>();
+        for (String line : Files.readAllLines(path)) {
+            String[] fields = line.split(",", -1);
+            if (fields.length != 4 || fields[0].equals("benchmark")) {
+                continue;
+            }
+            Result r = new Result(fields[0], fields[1], Double.parseDouble(fields[2]), Double.parseDouble(fields[3]));
+            results.put(r.name() + "," + r.param(), r);
+        }
+        return results;
+    }
+
+    /**
+     * @return false if any benchmark is slower than its baseline by more than the tolerance
+     */
+    private static boolean compare(Map<String, Result> baseline, List<Result> results, double tolerance) {
+        boolean ok = true;
+        System.out.println();
+        for (Result r : results) {
+            Result before = baseline.get(r.name() + "," + r.param());
+            if (before == null) {
+                continue;
+            }
+            double change = r.score() / before.score() - 1;
+            boolean regressed = change < -tolerance;
+            System.out.printf("%-32s %-8s %+7.1f%%%s%n", r.name(), r.param(), change * 100, regressed ? "  REGRESSION" : "");
+            ok &= !regressed;
+        }
+        return ok;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * Keeps benchmark results alive so the JIT cannot treat the measured code as dead
+ */
+public final class Blackhole {
+    // volatile writes cannot be removed, and only one happens per result so the cost is small and constant
+    private static volatile Object sink;
+    private static volatile int intSink;
+
+    private Blackhole() {
+    }
+
+    public static void consume(Object o) {
+        sink = o;
+    }
+
+    public static void consume(int i) {
+        intSink = i;
+    }
+}
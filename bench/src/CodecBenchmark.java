@@ -0,0 +1,95 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the PlayerCodecs: encode and decode throughput and the bytes each player takes
+ * usage: java CodecBenchmark [players] [scores per player]
+ */
+public class CodecBenchmark {
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+    private static final String[] DIFFICULTIES = {"Easy", "Medium", "Hard"};
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int scores = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        List<Player> players = samplePlayers(count, scores);
+        System.out.printf("%d players, %d scores each%n", count, scores);
+        System.out.printf("%-12s %16s %16s %14s%n", "codec", "encode players/s", "decode players/s", "bytes/player");
+        for (PlayerCodec codec : PlayerCodecs.all()) {
+            byte[] encoded = encode(codec, players);
+            checkRoundTrip(codec, players, encoded);
+            // the first rounds let the JIT compile the codec before anything is timed
+            for (int i = 0; i < WARMUP_ROUNDS; i++) {
+                encode(codec, players);
+                decode(codec, encoded, count);
+            }
+            long encodeNanos = 0;
+            long decodeNanos = 0;
+            for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                long start = System.nanoTime();
+                encode(codec, players);
+                encodeNanos += System.nanoTime() - start;
+                start = System.nanoTime();
+                decode(codec, encoded, count);
+                decodeNanos += System.nanoTime() - start;
+            }
+            System.out.printf("%-12s %16.0f %16.0f %14.1f%n", codec.name(),
+                    count * MEASURED_ROUNDS / (encodeNanos / 1e9),
+                    count * MEASURED_ROUNDS / (decodeNanos / 1e9),
+                    (double) encoded.length / count);
+        }
+    }
+
+    /**
+     * players with random scores, fixed seed so every run measures the same data
+     */
+    static List<Player> samplePlayers(int count, int scores) {
+        Random random = new Random(42);
+        List<Player> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Player p = new Player("player" + i, "password" + random.nextInt(1_000_000));
+            for (int s = 0; s < scores; s++) {
+                p.recordScore(DIFFICULTIES[random.nextInt(DIFFICULTIES.length)], random.nextInt(7) * 10);
+            }
+            players.add(p);
+        }
+        return players;
+    }
+
+    private static byte[] encode(PlayerCodec codec, List<Player> players) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(players.size() * 64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Player p : players) {
+            codec.encode(p, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<Player> decode(PlayerCodec codec, byte[] encoded, int count) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+        List<Player> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            players.add(codec.decode(in));
+        }
+        return players;
+    }
+
+    // a codec that loses data would look fast, so every codec has to reproduce the first player exactly
+    private static void checkRoundTrip(PlayerCodec codec, List<Player> players, byte[] encoded) throws IOException {
+        Player before = players.get(0);
+        Player after = decode(codec, encoded, 1).get(0);
+        if (!before.getUsername().equals(after.getUsername()) || !before.checkPassword(after.getPassword())
+                || !before.getHighScores().equals(after.getHighScores())
+                || !before.getScoreHistory().equals(after.getScoreHistory())
+                || before.getOverallHighScore() != after.getOverallHighScore()) {
+            throw new IllegalStateException(codec.name() + " codec does not round-trip players.");
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Benchmarks for GameSession
+ * @note every game guesses the alphabet in English letter frequency order, over the words of the hard word list
+ */
+public final class GameSessionBenchmarks {
+    // all 26 letters, most common first, so games end the way a reasonable player's would
+    private static final String GUESS_ORDER = "ETAOINSHRDLCUMWFGYPBVKJXQZ";
+
+    private GameSessionBenchmarks() {
+    }
+
+    private static String[] words() throws IOException {
+        List<String> words = new WordBank("hard").getWords();
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * a new session followed by all 26 guesses, reported per guess
+     */
+    public static class Guess implements Benchmark {
+        private String[] words;
+        private int next;
+
+        @Override
+        public void setup(String param) throws IOException {
+            words = words();
+        }
+
+        @Override
+        public Object invoke() {
+            GameSession session = new GameSession(words[next++ % words.length]);
+            int correct = 0;
+            for (int i = 0; i < GUESS_ORDER.length(); i++) {
+                if (session.guess(GUESS_ORDER.charAt(i))) {
+                    correct++;
+                }
+            }
+            return correct;
+        }
+
+        @Override
+        public int operationsPerInvocation() {
+            return GUESS_ORDER.length();
+        }
+    }
+
+    /**
+     * gameState on sessions left part way through a game
+     */
+    public static class GameState implements Benchmark {
+        private GameSession[] sessions;
+        private int next;
+
+        @Override
+        public void setup(String param) throws IOException {
+            String[] words = words();
+            sessions = new GameSession[words.length];
+            for (int i = 0; i < words.length; i++) {
+                sessions[i] = new GameSession(words[i]);
+                for (int g = 0; g < 5; g++) {
+                    sessions[i].guess(GUESS_ORDER.charAt(g));
+                }
+            }
+        }
+
+        @Override
+        public Object invoke() {
+            return sessions[next++ % sessions.length].gameState();
+        }
+    }
+
+    /**
+     * getObfuscatedWord read after every guess of a game, as the GUI does, reported per read
+     */
+    public static class ObfuscatedWord implements Benchmark {
+        private String[] words;
+        private int next;
+
+        @Override
+        public void setup(String param) throws IOException {
+            words = words();
+        }
+
+        @Override
+        public Object invoke() {
+            GameSession session = new GameSession(words[next++ % words.length]);
+            int length = 0;
+            for (int i = 0; i < GUESS_ORDER.length(); i++) {
+                session.guess(GUESS_ORDER.charAt(i));
+                length += session.getObfuscatedWord().length();
+            }
+            return length;
+        }
+
+        @Override
+        public int operationsPerInvocation() {
+            return GUESS_ORDER.length();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks for DataStore and Player
+ * @note these run in a scratch directory, DataStore always uses the files in the working directory
+ */
+public final class PersistenceBenchmarks {
+    private static final List<String> PLAYER_COUNTS = List.of("1000", "100000", "1000000");
+    private static final int SCORES_PER_PLAYER = 5;
+
+    private PersistenceBenchmarks() {
+    }
+
+    /**
+     * saving every player, until the write has reached the disk
+     */
+    public static class SavePlayers implements Benchmark {
+        private ArrayList<Player> players;
+
+        @Override
+        public List<String> params() {
+            return PLAYER_COUNTS;
+        }
+
+        @Override
+        public void setup(String param) {
+            DataStore.open();
+            players = new ArrayList<>(CodecBenchmark.samplePlayers(Integer.parseInt(param), SCORES_PER_PLAYER));
+        }
+
+        @Override
+        public Object invoke() {
+            DataStore.savePlayers(players);
+            DataStore.flush();
+            return players;
+        }
+
+        @Override
+        public boolean needsScratchDirectory() {
+            return true;
+        }
+    }
+
+    /**
+     * reading every player back from the store
+     */
+    public static class LoadPlayers implements Benchmark {
+        @Override
+        public List<String> params() {
+            return PLAYER_COUNTS;
+        }
+
+        @Override
+        public void setup(String param) {
+            DataStore.open();
+            DataStore.savePlayers(new ArrayList<>(CodecBenchmark.samplePlayers(Integer.parseInt(param), SCORES_PER_PLAYER)));
+            DataStore.flush();
+        }
+
+        @Override
+        public Object invoke() {
+            return DataStore.loadPlayers();
+        }
+
+        @Override
+        public boolean needsScratchDirectory() {
+            return true;
+        }
+    }
+
+    /**
+     * Player.recordScore, on a fresh player every 100 scores so the history stays a realistic size
+     */
+    public static class RecordScore implements Benchmark {
+        private static final String[] DIFFICULTIES = {"Easy", "Medium", "Hard"};
+
+        @Override
+        public Object invoke() {
+            Player p = new Player("player", "password");
+            for (int i = 0; i < 100; i++) {
+                p.recordScore(DIFFICULTIES[i % 3], (i % 7) * 10);
+            }
+            return p;
+        }
+
+        @Override
+        public int operationsPerInvocation() {
+            return 100;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Benchmarks for Solver
+ * @note the word lists shipped with the game are tiny, so these run over generated dictionaries of random words
+ * with English letter frequencies, sized by the parameter
+ */
+public final class SolverBenchmarks {
+    // relative frequency of each letter A-Z in English text, per thousand letters
+    private static final int[] LETTER_WEIGHTS = {82, 15, 28, 43, 127, 22, 20, 61, 70, 2, 8, 40, 24, 67, 75, 19, 1, 60,
+            63, 91, 28, 10, 24, 2, 20, 1};
+
+    private SolverBenchmarks() {
+    }
+
+    /**
+     * @return distinct upper case words of 4 to 12 letters, the same ones for the same count
+     */
+    static List<String> dictionary(int count) {
+        Random random = new Random(count);
+        int total = 0;
+        for (int w : LETTER_WEIGHTS) {
+            total += w;
+        }
+        Set<String> words = new LinkedHashSet<>();
+        StringBuilder sb = new StringBuilder();
+        while (words.size() < count) {
+            sb.setLength(0);
+            int length = 4 + random.nextInt(9);
+            for (int i = 0; i < length; i++) {
+                int r = random.nextInt(total);
+                int l = 0;
+                while (r >= LETTER_WEIGHTS[l]) {
+                    r -= LETTER_WEIGHTS[l++];
+                }
+                sb.append((char) ('A' + l));
+            }
+            words.add(sb.toString());
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * building the index for a whole dictionary
+     */
+    public static class Index implements Benchmark {
+        private List<String> words;
+
+        @Override
+        public List<String> params() {
+            return List.of("10000", "300000");
+        }
+
+        @Override
+        public void setup(String param) {
+            words = dictionary(Integer.parseInt(param));
+        }
+
+        @Override
+        public Object invoke() {
+            return new Solver(words);
+        }
+    }
+
+    /**
+     * bestLetter on games part way through, from the first guess to a few letters from the end
+     */
+    public static class BestLetter implements Benchmark {
+        private Solver solver;
+        private GameSession[] sessions;
+        private int next;
+
+        @Override
+        public List<String> params() {
+            return List.of("10000", "300000");
+        }
+
+        @Override
+        public void setup(String param) {
+            List<String> words = dictionary(Integer.parseInt(param));
+            solver = new Solver(words);
+            Random random = new Random(1);
+            sessions = new GameSession[1024];
+            for (int i = 0; i < sessions.length; i++) {
+                sessions[i] = new GameSession(words.get(random.nextInt(words.size())));
+                // plays the solver's own guesses for a random number of turns
+                int turns = random.nextInt(6);
+                for (int t = 0; t < turns && sessions[i].gameState() == 0; t++) {
+                    sessions[i].guess(solver.bestLetter(sessions[i]));
+                }
+            }
+        }
+
+        @Override
+        public Object invoke() {
+            return solver.bestLetter(sessions[next++ & (sessions.length - 1)]);
+        }
+    }
+}
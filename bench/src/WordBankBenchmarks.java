@@ -0,0 +1,75 @@
+import java.util.List;
+
+/**
+ * Benchmarks for WordBank
+ */
+public final class WordBankBenchmarks {
+    private WordBankBenchmarks() {
+    }
+
+    /**
+     * reading and parsing one word list file
+     */
+    public static class Load implements Benchmark {
+        private String difficulty;
+
+        @Override
+        public List<String> params() {
+            return List.of("easy", "medium", "hard");
+        }
+
+        @Override
+        public void setup(String param) {
+            difficulty = param;
+        }
+
+        @Override
+        public Object invoke() throws Exception {
+            return new WordBank(difficulty);
+        }
+    }
+
+    public static class RandomWord implements Benchmark {
+        private WordBank bank;
+
+        @Override
+        public void setup(String param) throws Exception {
+            bank = new WordBank("hard");
+        }
+
+        @Override
+        public Object invoke() {
+            return bank.getRandomWord();
+        }
+    }
+
+    /**
+     * WordSelector.next for one player, on the hard list and on generated dictionaries, to show it does not grow
+     * with the number of words
+     */
+    public static class Select implements Benchmark {
+        private WordSelector selector;
+        private final Player player = new Player("bench", "password");
+
+        @Override
+        public List<String> params() {
+            return List.of("hard", "10000", "1000000");
+        }
+
+        @Override
+        public void setup(String param) throws Exception {
+            List<String> words = param.equals("hard") ? new WordBank("hard").getWords()
+                    : SolverBenchmarks.dictionary(Integer.parseInt(param));
+            double[] weights = new double[words.size()];
+            for (int i = 0; i < weights.length; i++) {
+                weights[i] = 1 + (i % 10);
+            }
+            selector = new WordSelector(words, weights, 50);
+        }
+
+        @Override
+        public Object invoke() {
+            return selector.next(player);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written binary codec using DataOutputStream
+ * @note layout: [username][password][overall high score][high score count][(difficulty, score)...][history count][score...]
+ */
+public class BinaryPlayerCodec implements PlayerCodec {
+    @Override
+    public byte id() {
+        return 1;
+    }
+
+    @Override
+    public String name() {
+        return "binary";
+    }
+
+    @Override
+    public void encode(Player p, DataOutputStream out) throws IOException {
+        out.writeUTF(p.getUsername());
+        out.writeUTF(p.getPassword());
+        out.writeInt(p.getOverallHighScore());
+        Map<String, Integer> highScores = p.getHighScores();
+        out.writeInt(highScores.size());
+        for (Map.Entry<String, Integer> e : highScores.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeInt(e.getValue());
+        }
+        List<Integer> history = p.getScoreHistory();
+        out.writeInt(history.size());
+        for (int score : history) {
+            out.writeInt(score);
+        }
+    }
+
+    @Override
+    public Player decode(DataInputStream in) throws IOException {
+        String username = in.readUTF();
+        String password = in.readUTF();
+        int overall = in.readInt();
+        int count = in.readInt();
+        Map<String, Integer> highScores = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            highScores.put(in.readUTF(), in.readInt());
+        }
+        count = in.readInt();
+        List<Integer> history = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            history.add(in.readInt());
+        }
+        return Player.restore(username, password, overall, highScores, history);
+    }
+}
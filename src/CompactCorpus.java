@@ -0,0 +1,403 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A word list stored as a DAWG, a trie where identical endings are shared, in a binary file read through a memory
+ * mapping
+ * usage: java CompactCorpus build words.txt words.dawg
+ *        java CompactCorpus match words.dawg C_T [excluded letters]
+ * @note opening a corpus only maps the file, nothing is parsed or copied onto the heap, so even a dictionary of
+ * millions of words opens at once and costs a few objects of heap. Every node stores how many words can be reached
+ * from it, so the i-th word, and so a random word, is found by walking down from the root without visiting the
+ * others. Words are sequences of Java chars, so any language works
+ *
+ * file layout, all big endian:
+ * header      [int magic "HDAW"][int version][int nodes][int edges][int words][int root] padded to 32 bytes
+ * firstEdge   int per node plus one, the edges of node n are firstEdge[n] up to firstEdge[n + 1]
+ * count       int per node, the words reachable from it, the top bit set if a word ends at it
+ * label       char per edge, sorted within each node, padded to a multiple of 4 bytes
+ * target      int per edge, the node the edge leads to
+ */
+public final class CompactCorpus {
+    private static final int MAGIC = 0x48444157;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int FINAL = 0x80000000;
+
+    private final ByteBuffer data;
+    private final int nodes;
+    private final int edges;
+    private final int words;
+    private final int root;
+    // byte offsets of each section
+    private final int firstEdgeAt;
+    private final int countAt;
+    private final int labelAt;
+    private final int targetAt;
+
+    private CompactCorpus(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException("Not a word corpus file, or from another version.");
+        }
+        nodes = data.getInt(8);
+        edges = data.getInt(12);
+        words = data.getInt(16);
+        root = data.getInt(20);
+        firstEdgeAt = HEADER_SIZE;
+        countAt = firstEdgeAt + 4 * (nodes + 1);
+        labelAt = countAt + 4 * nodes;
+        targetAt = labelAt + padded(2 * edges);
+        if ((long) targetAt + 4L * edges > data.capacity()) {
+            throw new IOException("Word corpus file is truncated.");
+        }
+    }
+
+    /**
+     * maps a corpus written by build
+     * @throws IOException if the file cannot be read or is not a corpus
+     */
+    public static CompactCorpus open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new CompactCorpus(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 3 && args[0].equals("build")) {
+            List<String> lines = new ArrayList<>();
+            for (String line : Files.readAllLines(Path.of(args[1]))) {
+                // the same clean up as WordBank
+                line = line.strip();
+                if (!line.isEmpty()) {
+                    lines.add(line.toUpperCase());
+                }
+            }
+            build(lines, Path.of(args[2]));
+            System.out.println("Wrote " + open(Path.of(args[2])).size() + " words to " + args[2]);
+        } else if (args.length >= 3 && args[0].equals("match")) {
+            CompactCorpus corpus = open(Path.of(args[1]));
+            String excluded = args.length > 3 ? args[3].toUpperCase() : "";
+            corpus.match(args[2].toUpperCase(), excluded, 100).forEach(System.out::println);
+            System.out.println(corpus.countMatches(args[2].toUpperCase(), excluded) + " matches");
+        } else {
+            System.err.println("usage: CompactCorpus build words.txt words.dawg | match words.dawg C_T [excluded]");
+            System.exit(2);
+        }
+    }
+
+    /**
+     * @return the number of distinct words
+     */
+    public int size() {
+        return words;
+    }
+
+    public boolean contains(String word) {
+        int node = root;
+        for (int i = 0; i < word.length(); i++) {
+            node = child(node, word.charAt(i));
+            if (node < 0) {
+                return false;
+            }
+        }
+        return isFinal(node);
+    }
+
+    /**
+     * @param index between 0 and size() - 1
+     * @return the word at this place in sorted order
+     */
+    public String word(int index) {
+        if (index < 0 || index >= words) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        StringBuilder sb = new StringBuilder();
+        int node = root;
+        int k = index;
+        while (true) {
+            if (isFinal(node)) {
+                if (k == 0) {
+                    return sb.toString();
+                }
+                k--;
+            }
+            // skips whole subtrees by their counts until the one holding the word
+            for (int e = firstEdge(node), end = firstEdge(node + 1); e < end; e++) {
+                int child = target(e);
+                int c = count(child);
+                if (k < c) {
+                    sb.append(label(e));
+                    node = child;
+                    break;
+                }
+                k -= c;
+            }
+        }
+    }
+
+    public String randomWord() {
+        return word(ThreadLocalRandom.current().nextInt(words));
+    }
+
+    /**
+     * @param pattern the word with '_' for every unknown letter, e.g. "C_T"
+     * @param excluded letters an unknown letter cannot be, e.g. every letter already guessed
+     * @param limit the most words returned
+     * @return the matching words in sorted order
+     */
+    public List<String> match(String pattern, String excluded, int limit) {
+        List<String> found = new ArrayList<>();
+        match(root, pattern, 0, excluded, new StringBuilder(), found, limit);
+        return found;
+    }
+
+    public int countMatches(String pattern, String excluded) {
+        return count(root, pattern, 0, excluded);
+    }
+
+    /**
+     * @return the words in sorted order as a read only list, each one decoded when it is read
+     */
+    public List<String> asList() {
+        return new WordList();
+    }
+
+    private final class WordList extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return word(index);
+        }
+
+        @Override
+        public int size() {
+            return words;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof String s && CompactCorpus.this.contains(s);
+        }
+    }
+
+    private void match(int node, String pattern, int pos, String excluded, StringBuilder sb, List<String> found,
+                       int limit) {
+        if (pos == pattern.length()) {
+            if (isFinal(node)) {
+                found.add(sb.toString());
+            }
+            return;
+        }
+        char p = pattern.charAt(pos);
+        if (p != '_') {
+            int child = child(node, p);
+            if (child >= 0) {
+                sb.append(p);
+                match(child, pattern, pos + 1, excluded, sb, found, limit);
+                sb.setLength(pos);
+            }
+            return;
+        }
+        for (int e = firstEdge(node), end = firstEdge(node + 1); e < end && found.size() < limit; e++) {
+            char c = label(e);
+            if (excluded.indexOf(c) < 0) {
+                sb.append(c);
+                match(target(e), pattern, pos + 1, excluded, sb, found, limit);
+                sb.setLength(pos);
+            }
+        }
+    }
+
+    private int count(int node, String pattern, int pos, String excluded) {
+        if (pos == pattern.length()) {
+            return isFinal(node) ? 1 : 0;
+        }
+        char p = pattern.charAt(pos);
+        if (p != '_') {
+            int child = child(node, p);
+            return child < 0 ? 0 : count(child, pattern, pos + 1, excluded);
+        }
+        int total = 0;
+        for (int e = firstEdge(node), end = firstEdge(node + 1); e < end; e++) {
+            if (excluded.indexOf(label(e)) < 0) {
+                total += count(target(e), pattern, pos + 1, excluded);
+            }
+        }
+        return total;
+    }
+
+    // binary search of the node's sorted labels, -1 if it has no edge for c
+    private int child(int node, char c) {
+        int lo = firstEdge(node);
+        int hi = firstEdge(node + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char m = label(mid);
+            if (m < c) {
+                lo = mid + 1;
+            } else if (m > c) {
+                hi = mid - 1;
+            } else {
+                return target(mid);
+            }
+        }
+        return -1;
+    }
+
+    private int firstEdge(int node) {
+        return data.getInt(firstEdgeAt + 4 * node);
+    }
+
+    private int count(int node) {
+        return data.getInt(countAt + 4 * node) & ~FINAL;
+    }
+
+    private boolean isFinal(int node) {
+        return (data.getInt(countAt + 4 * node) & FINAL) != 0;
+    }
+
+    private char label(int edge) {
+        return data.getChar(labelAt + 2 * edge);
+    }
+
+    private int target(int edge) {
+        return data.getInt(targetAt + 4 * edge);
+    }
+
+    private static int padded(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+    // a node while the DAWG is being built
+    private static final class BuildNode {
+        boolean end;
+        final StringBuilder labels = new StringBuilder();
+        final List<BuildNode> children = new ArrayList<>();
+        // its place in the file, set once it is known to be unique
+        int index = -1;
+        int count;
+
+        // two nodes with the same key have the same words below them, so one can replace the other
+        String key() {
+            StringBuilder sb = new StringBuilder(end ? "1" : "0");
+            for (int i = 0; i < children.size(); i++) {
+                sb.append(labels.charAt(i)).append(children.get(i).index).append(',');
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * writes the words as a corpus file, duplicates are dropped
+     * @note builds the minimal DAWG in one pass over the sorted words: once a word no longer shares a prefix with
+     * the next one, the nodes below that prefix are final and each is replaced by an identical node seen before
+     */
+    public static void build(Collection<String> input, Path path) throws IOException {
+        TreeSet<String> sorted = new TreeSet<>(input);
+        BuildNode rootNode = new BuildNode();
+        // unique nodes by key, children are always added before their parents
+        Map<String, BuildNode> register = new HashMap<>();
+        List<BuildNode> unique = new ArrayList<>();
+        // the path of the previous word below its shared prefix, not yet checked against the register
+        List<BuildNode> parents = new ArrayList<>();
+        List<BuildNode> unchecked = new ArrayList<>();
+        String previous = "";
+        for (String word : sorted) {
+            int common = 0;
+            while (common < word.length() && common < previous.length() && word.charAt(common) == previous.charAt(common)) {
+                common++;
+            }
+            minimize(common, parents, unchecked, register, unique);
+            BuildNode node = unchecked.isEmpty() ? rootNode : unchecked.get(unchecked.size() - 1);
+            for (int i = common; i < word.length(); i++) {
+                BuildNode child = new BuildNode();
+                node.labels.append(word.charAt(i));
+                node.children.add(child);
+                parents.add(node);
+                unchecked.add(child);
+                node = child;
+            }
+            node.end = true;
+            previous = word;
+        }
+        minimize(0, parents, unchecked, register, unique);
+
+        // the root goes last, after every node below it, and the counts follow the same order
+        rootNode.index = unique.size();
+        unique.add(rootNode);
+        int edgeCount = 0;
+        for (BuildNode n : unique) {
+            n.count = n.end ? 1 : 0;
+            for (BuildNode child : n.children) {
+                n.count += child.count;
+            }
+            edgeCount += n.children.size();
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(unique.size());
+            out.writeInt(edgeCount);
+            out.writeInt(rootNode.count);
+            out.writeInt(rootNode.index);
+            out.write(new byte[HEADER_SIZE - 24]);
+            int edge = 0;
+            for (BuildNode n : unique) {
+                out.writeInt(edge);
+                edge += n.children.size();
+            }
+            out.writeInt(edge);
+            for (BuildNode n : unique) {
+                out.writeInt(n.end ? n.count | FINAL : n.count);
+            }
+            for (BuildNode n : unique) {
+                out.writeChars(n.labels.toString());
+            }
+            out.write(new byte[padded(2 * edgeCount) - 2 * edgeCount]);
+            for (BuildNode n : unique) {
+                for (BuildNode child : n.children) {
+                    out.writeInt(child.index);
+                }
+            }
+        }
+        // written beside the old file and moved over it, so a reader never maps a half written corpus
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // checks the unchecked nodes deeper than the shared prefix against the register, deepest first
+    private static void minimize(int downTo, List<BuildNode> parents, List<BuildNode> unchecked,
+                                 Map<String, BuildNode> register, List<BuildNode> unique) {
+        for (int i = unchecked.size() - 1; i >= downTo; i--) {
+            BuildNode parent = parents.remove(i);
+            BuildNode child = unchecked.remove(i);
+            String key = child.key();
+            BuildNode existing = register.get(key);
+            if (existing != null) {
+                parent.children.set(parent.children.size() - 1, existing);
+            } else {
+                child.index = unique.size();
+                unique.add(child);
+                register.put(key, child);
+            }
+        }
+    }
+}
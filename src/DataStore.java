@@ -1,38 +1,619 @@
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
 
+/**
+ * Saves players in a random-access PlayerStore plus an append-only journal of changes
+ * @note each change is appended to the journal, and once the journal passes COMPACT_THRESHOLD records
+ * only the players changed since the last checkpoint are rewritten in the store.
+ * Nothing is written on the calling thread, see WriteBehind for batching and durability modes
+ */
 public class DataStore {
+    // player file used before the player store, read once to migrate it, see PlayerCodecs.readPlayers
     private static final String FILE_NAME = "players.txt";
+    private static final String STORE_NAME = "players.dat";
+    private static final String INDEX_NAME = "players.idx";
+    private static final String JOURNAL_NAME = "players.journal";
+    // players decoded at a time by forEachPlayer
+    private static final int SCAN_CHUNK = 1024;
+    // number of journal records after which the next compactIfNeeded call writes a checkpoint
+    private static final int COMPACT_THRESHOLD = 1000;
 
-    public static void savePlayers(ArrayList<Player> players) {
+    // journal record types
+    private static final byte NEW_PLAYER = 1;
+    private static final byte SCORE = 2;
+    private static final byte USERNAME = 3;
+    private static final byte PASSWORD = 4;
+    // set in a record's length when a CRC32 of the record follows it, journals written before checksums lack it
+    private static final int CHECKSUMMED = 0x80000000;
+    // sequence and type, the shortest record there is
+    private static final int MIN_RECORD = 8 + 1;
+
+    // sequence number of the last change written, every store record keeps the sequence of its latest change
+    // so a replay never applies a change twice
+    private static long lastSequence = 0;
+    // records in the journal that are not yet part of a checkpoint
+    private static volatile int journalRecords = 0;
+    // writes journal records and checkpoints in the background, see WriteBehind
+    private static WriteBehind writer;
+    private static PlayerStore store;
+    // players changed since their last checkpoint, by current username
+    private static final Map<String, Player> pending = new HashMap<>();
+    // sequence of the latest change of each pending player
+    private static final Map<Player, Long> pendingSequence = new IdentityHashMap<>();
+    // usernames given up by a rename, with the sequence of the rename, until a checkpoint removes them from the store
+    private static final Map<String, Long> released = new HashMap<>();
+    // see Metrics
+    private static final LatencyHistogram LOAD_PLAYER_TIME = Metrics.timer("dataStore.loadPlayer");
+    private static final LatencyHistogram LOAD_PLAYERS_TIME = Metrics.timer("dataStore.loadPlayers");
+    private static final LatencyHistogram SAVE_PLAYERS_TIME = Metrics.timer("dataStore.savePlayers");
+
+    /**
+     * opens the player store and replays the journal, only players named in the journal are read
+     * @note safe to call more than once, later calls do nothing
+     */
+    public static synchronized void open() {
+        if (store != null) {
+            return;
+        }
+        long start = System.nanoTime();
         try {
-            FileOutputStream fos = new FileOutputStream(FILE_NAME);
-            ObjectOutputStream oos = new ObjectOutputStream(fos);
-            oos.writeObject(players);
-            oos.close();
-            fos.close();
+            store = PlayerStore.open(Path.of(STORE_NAME), Path.of(INDEX_NAME));
+            lastSequence = store.getSequence();
+            Map<Player, Long> known = new IdentityHashMap<>();
+            boolean migrating = store.size() == 0 && new File(FILE_NAME).exists();
+            if (migrating) {
+                loadLegacySnapshot(known);
+            }
+            replayJournal(known);
+            if (migrating) {
+                // the old snapshot is kept as a backup once everything in it has been checkpointed into the store
+                checkpoint(() -> Files.move(Path.of(FILE_NAME), Path.of(FILE_NAME + ".bak"), StandardCopyOption.REPLACE_EXISTING));
+            }
+            Metrics.recordSince(Metrics.timer("dataStore.open"), start);
         } catch (IOException e) {
-            e.printStackTrace();
+            store = null;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * writes out every queued change and closes the store, the next call that needs it opens it again from the files
+     * @note used by tests to check what survives a restart
+     */
+    static void close() throws IOException {
+        WriteBehind w;
+        synchronized (DataStore.class) {
+            w = writer;
+            writer = null;
+        }
+        // closed outside the lock, a checkpoint still queued needs it to finish
+        if (w != null) {
+            w.close();
+        }
+        synchronized (DataStore.class) {
+            if (store != null) {
+                store.close();
+                store = null;
+            }
+            pending.clear();
+            pendingSequence.clear();
+            released.clear();
+            lastSequence = 0;
+            journalRecords = 0;
+        }
+    }
+
+    /**
+     * @return the player with this username including any changes not yet checkpointed, or null if there is none
+     * @throws UncheckedIOException if the store cannot be read, so a read error is never mistaken for a free username
+     */
+    public static Player loadPlayer(String username) {
+        JfrEvents.PlayerLoad event = JfrEvents.ENABLED ? JfrEvents.begin(new JfrEvents.PlayerLoad()) : null;
+        long start = System.nanoTime();
+        Player p = null;
+        try {
+            p = readPlayer(username);
+            return p;
+        } finally {
+            Metrics.recordSince(LOAD_PLAYER_TIME, start);
+            if (event != null && event.shouldCommit()) {
+                event.username = username;
+                event.players = p == null ? 0 : 1;
+                event.commit();
+            }
+        }
+    }
+
+    private static synchronized Player readPlayer(String username) {
+        open();
+        Player p = pending.get(username);
+        if (p != null) {
+            return p;
+        }
+        if (released.containsKey(username)) {
+            // renamed away, the store still has the old record until the next checkpoint
+            return null;
+        }
+        try {
+            PlayerStore.Stored stored = store.read(username);
+            return stored == null ? null : stored.player();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
+    /**
+     * reads every player, for tools that need the whole list rather than single logins
+     * @note the store is decoded in parallel, see PlayerStore.readAll
+     */
     public static ArrayList<Player> loadPlayers() {
-        File file = new File(FILE_NAME);
-        if (!file.exists()) {
-            return new java.util.ArrayList<>();
+        JfrEvents.PlayerLoad event = JfrEvents.ENABLED ? JfrEvents.begin(new JfrEvents.PlayerLoad()) : null;
+        long start = System.nanoTime();
+        ArrayList<Player> players = new ArrayList<>();
+        try {
+            synchronized (DataStore.class) {
+                open();
+                // changed players replace their stored copy so each player appears once with its latest state
+                Map<String, Player> remaining = new HashMap<>(pending);
+                for (PlayerStore.Stored stored : store.readAll()) {
+                    String username = stored.player().getUsername();
+                    if (remaining.containsKey(username)) {
+                        players.add(remaining.remove(username));
+                    } else if (!released.containsKey(username)) {
+                        players.add(stored.player());
+                    }
+                }
+                players.addAll(remaining.values());
+            }
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace();
+            Metrics.increment("dataStore.errors");
         }
+        Metrics.recordSince(LOAD_PLAYERS_TIME, start);
+        if (event != null && event.shouldCommit()) {
+            event.username = "";
+            event.players = players.size();
+            event.commit();
+        }
+        return players;
+    }
 
+    /**
+     * passes every player to the action, reading the store a chunk at a time, e.g. to fill the leaderboard
+     * @note unlike loadPlayers no lock is held while players are decoded or passed on, so logins go on while it runs,
+     * and only one chunk of players is in memory at a time. Players changed since the last checkpoint are passed at
+     * the end as the objects in use. A player renamed while it runs may still be passed under their old username
+     */
+    public static void forEachPlayer(Consumer<Player> action) {
         try {
-            FileInputStream fis = new FileInputStream(FILE_NAME);
-            ObjectInputStream ois = new ObjectInputStream(fis);
-            ArrayList<Player> players = (ArrayList<Player>) ois.readObject();
-            ois.close();
-            fis.close();
-            return players;
-        } catch (IOException | ClassNotFoundException e) {
+            PlayerStore s;
+            synchronized (DataStore.class) {
+                open();
+                s = store;
+            }
+            PlayerStore.Chunk chunk = null;
+            do {
+                chunk = s.readChunk(chunk, SCAN_CHUNK);
+                List<Player> players = new ArrayList<>(chunk.payloads().size());
+                for (byte[] payload : chunk.payloads()) {
+                    players.add(s.decode(payload).player());
+                }
+                synchronized (DataStore.class) {
+                    // a changed player is passed at the end instead, and a released username belongs to nobody
+                    players.removeIf(p -> pending.containsKey(p.getUsername()) || released.containsKey(p.getUsername()));
+                }
+                players.forEach(action);
+            } while (!chunk.isLast());
+            List<Player> changed;
+            synchronized (DataStore.class) {
+                changed = new ArrayList<>(pending.values());
+            }
+            changed.forEach(action);
+        } catch (IOException | UncheckedIOException e) {
             e.printStackTrace();
-            return new java.util.ArrayList<>();
+            Metrics.increment("dataStore.errors");
+        }
+    }
+
+    /**
+     * saves the given players in full at the next checkpoint, without journaling them
+     */
+    public static void savePlayers(ArrayList<Player> players) {
+        long start = System.nanoTime();
+        CompletableFuture<Void> done;
+        synchronized (DataStore.class) {
+            open();
+            for (Player p : players) {
+                markPending(p, lastSequence);
+            }
+            done = checkpoint(null);
+        }
+        writer.awaitDurable(done);
+        Metrics.recordSince(SAVE_PLAYERS_TIME, start);
+    }
+
+    /**
+     * writes every player to a standalone player file, e.g. to move accounts to another machine or codec
+     * @note the file can be placed as players.txt in an empty directory and is imported on the next open
+     */
+    public static void exportPlayers(Path path, PlayerCodec codec) throws IOException {
+        synchronized (DataStore.class) {
+            PlayerCodecs.writePlayers(path, loadPlayers(), lastSequence, codec);
+        }
+    }
+
+    /**
+     * blocks until every change handed to the DataStore so far is on disk
+     * @note must not be called while holding the DataStore lock, the writer thread needs it to finish a checkpoint
+     */
+    public static void flush() {
+        WriteBehind w;
+        synchronized (DataStore.class) {
+            w = writer;
         }
+        if (w != null) {
+            w.flush();
+        }
+    }
+
+    /**
+     * appends the signup of a new player to the journal
+     * @return false if the signup could not be journaled, in which case the player would be gone after a restart
+     */
+    public static boolean recordNewPlayer(Player p) {
+        return append(NEW_PLAYER, p, null, out -> {
+            out.writeUTF(p.getUsername());
+            out.writeUTF(p.getPassword());
+        });
+    }
+
+    /**
+     * appends a finished game's score to the journal, the caller has already called p.recordScore
+     * @return completes once the score is written, pass it to awaitDurable after releasing any locks
+     * @note unlike the other changes this does not wait for the disk itself, since it is recorded while the game
+     * is locked
+     */
+    public static CompletableFuture<Void> recordScore(Player p, String difficulty, int score) {
+        return queue(SCORE, p, null, out -> {
+            out.writeUTF(p.getUsername());
+            out.writeUTF(difficulty);
+            out.writeInt(score);
+        });
+    }
+
+    // appends a username change to the journal, the caller has already called p.setUsername, false if it failed
+    public static boolean recordUsernameChange(String oldUsername, Player p) {
+        return append(USERNAME, p, oldUsername, out -> {
+            out.writeUTF(oldUsername);
+            out.writeUTF(p.getUsername());
+        });
+    }
+
+    // appends a password change to the journal, the caller has already called p.setPassword, false if it failed
+    public static boolean recordPasswordChange(Player p) {
+        return append(PASSWORD, p, null, out -> {
+            out.writeUTF(p.getUsername());
+            out.writeUTF(p.getPassword());
+        });
     }
 
+    /**
+     * in STRICT durability waits until a change returned by recordScore has been forced to disk
+     * @return false if the change failed, either before it was queued or, when waited for, while it was written
+     */
+    public static boolean awaitDurable(CompletableFuture<Void> done) {
+        if (done.isCompletedExceptionally()) {
+            return false;
+        }
+        WriteBehind w;
+        synchronized (DataStore.class) {
+            w = writer;
+        }
+        try {
+            if (w != null) {
+                w.awaitDurable(done);
+            }
+            return true;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            Metrics.increment("dataStore.errors");
+            return false;
+        }
+    }
+
+    /**
+     * writes a checkpoint once the journal has grown past the threshold, keeping replay time bounded
+     */
+    public static void compactIfNeeded() {
+        if (journalRecords < COMPACT_THRESHOLD) {
+            return;
+        }
+        CompletableFuture<Void> done;
+        synchronized (DataStore.class) {
+            if (journalRecords < COMPACT_THRESHOLD) {
+                return;
+            }
+            done = checkpoint(null);
+        }
+        writer.awaitDurable(done);
+    }
+
+    /**
+     * encodes every pending player on the calling thread, so the checkpoint matches lastSequence exactly,
+     * and queues writing them to the store on the writer thread
+     * @param after extra work done on the writer thread once the store is on disk, may be null
+     */
+    private static CompletableFuture<Void> checkpoint(WriteBehind.Checkpoint after) throws UncheckedIOException {
+        long sequence = lastSequence;
+        List<byte[]> payloads = new ArrayList<>(pending.size());
+        try {
+            for (Player p : pending.values()) {
+                payloads.add(store.encode(p, pendingSequence.get(p)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<String> removed = new ArrayList<>();
+        for (String username : released.keySet()) {
+            if (!pending.containsKey(username)) {
+                removed.add(username);
+            }
+        }
+        journalRecords = 0;
+        return writer().checkpoint(() -> {
+            JfrEvents.Checkpoint event = JfrEvents.ENABLED ? JfrEvents.begin(new JfrEvents.Checkpoint()) : null;
+            // new records are written before old names are removed, so a crash in between loses nobody
+            long bytes = 0;
+            for (byte[] payload : payloads) {
+                store.write(payload);
+                bytes += payload.length;
+            }
+            for (String username : removed) {
+                store.delete(username);
+            }
+            store.setSequence(sequence);
+            store.force();
+            if (event != null && event.shouldCommit()) {
+                event.players = payloads.size();
+                event.bytes = bytes;
+                event.removed = removed.size();
+                event.commit();
+            }
+            synchronized (DataStore.class) {
+                // players changed again after the checkpoint was queued stay pending for the next one
+                pendingSequence.values().removeIf(s -> s <= sequence);
+                pending.values().removeIf(p -> !pendingSequence.containsKey(p));
+                released.values().removeIf(s -> s <= sequence);
+            }
+            if (after != null) {
+                after.run();
+            }
+        });
+    }
+
+    private static void markPending(Player p, long sequence) {
+        pending.put(p.getUsername(), p);
+        pendingSequence.put(p, sequence);
+    }
+
+    /**
+     * the background writer is created on first use, together with a shutdown hook that flushes it
+     */
+    private static synchronized WriteBehind writer() {
+        if (writer == null) {
+            writer = WriteBehind.fromSystemProperties(Path.of(JOURNAL_NAME));
+            WriteBehind w = writer;
+            Runtime.getRuntime().addShutdownHook(new Thread(w::close, "hangman-flush-on-exit"));
+        }
+        return writer;
+    }
+
+    /**
+     * reads players.txt from before the player store existed, all of them become pending for the first checkpoint
+     */
+    private static void loadLegacySnapshot(Map<Player, Long> known) throws IOException {
+        PlayerCodecs.PlayerFile file = PlayerCodecs.readPlayers(Path.of(FILE_NAME));
+        for (Player p : file.players()) {
+            markPending(p, file.sequence());
+            known.put(p, file.sequence());
+        }
+        lastSequence = Math.max(lastSequence, file.sequence());
+    }
+
+    /**
+     * applies every journal record newer than the player it changes, the changed players become pending
+     * @note the log ends at the first record that cannot be right: too short, running past the end of the file,
+     * failing its checksum or of an unknown type, e.g. one cut off by a crash or a tail the file system filled with
+     * zeros. That record and everything after it is removed from the file
+     */
+    private static void replayJournal(Map<Player, Long> known) throws IOException {
+        File file = new File(JOURNAL_NAME);
+        if (!file.exists()) {
+            return;
+        }
+        long fileLength = file.length();
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (validLength + 4 <= fileLength) {
+                int header = in.readInt();
+                boolean checksummed = (header & CHECKSUMMED) != 0;
+                int length = header & ~CHECKSUMMED;
+                long end = validLength + (checksummed ? 8 : 4) + length;
+                if (length < MIN_RECORD || end > fileLength) {
+                    break;
+                }
+                int crc = checksummed ? in.readInt() : 0;
+                byte[] record = new byte[length];
+                in.readFully(record);
+                if (checksummed && crc != crc(record, 0)) {
+                    break;
+                }
+                DataInputStream r = new DataInputStream(new ByteArrayInputStream(record));
+                long sequence = r.readLong();
+                byte type = r.readByte();
+                if (type < NEW_PLAYER || type > PASSWORD) {
+                    break;
+                }
+                try {
+                    apply(type, sequence, r, known);
+                } catch (EOFException | UTFDataFormatException e) {
+                    // fields shorter than the record claims, only possible in a journal without checksums
+                    break;
+                }
+                validLength = end;
+                lastSequence = Math.max(lastSequence, sequence);
+                journalRecords++;
+            }
+        } catch (EOFException e) {
+            // the file got shorter while it was read, what was read so far stands
+        }
+        if (validLength < fileLength) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(validLength);
+            }
+        }
+    }
+
+    // CRC32 of the bytes from offset on
+    private static int crc(byte[] bytes, int offset) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, bytes.length - offset);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * finds a player during replay, remembering the sequence its stored record was saved with
+     */
+    private static Player replayFind(String username, Map<Player, Long> known) throws IOException {
+        Player p = pending.get(username);
+        if (p != null || released.containsKey(username)) {
+            return p;
+        }
+        PlayerStore.Stored stored = store.read(username);
+        if (stored == null) {
+            return null;
+        }
+        known.put(stored.player(), stored.sequence());
+        return stored.player();
+    }
+
+    // true if the player already contains the change with this sequence
+    private static boolean applied(Player p, long sequence, Map<Player, Long> known) {
+        Long saved = pendingSequence.getOrDefault(p, known.get(p));
+        return saved != null && saved >= sequence;
+    }
+
+    private static void apply(byte type, long sequence, DataInputStream r, Map<Player, Long> known) throws IOException {
+        switch (type) {
+            case NEW_PLAYER -> {
+                String username = r.readUTF();
+                String password = r.readUTF();
+                Player existing = replayFind(username, known);
+                if (existing == null || !applied(existing, sequence, known)) {
+                    // restored rather than constructed, so a name from before the length limits still loads
+                    markPending(Player.restore(username, password, 0, Map.of(), List.of()), sequence);
+                }
+            }
+            case SCORE -> {
+                Player p = replayFind(r.readUTF(), known);
+                String difficulty = r.readUTF();
+                int score = r.readInt();
+                if (p != null && !applied(p, sequence, known)) {
+                    p.recordScore(difficulty, score);
+                    markPending(p, sequence);
+                }
+            }
+            case USERNAME -> {
+                String oldUsername = r.readUTF();
+                String newUsername = r.readUTF();
+                Player renamed = replayFind(newUsername, known);
+                if (renamed != null && applied(renamed, sequence, known)) {
+                    // the rename reached the store but the old record was not removed before a crash
+                    if (!pending.containsKey(oldUsername)) {
+                        released.put(oldUsername, sequence);
+                    }
+                    return;
+                }
+                Player p = replayFind(oldUsername, known);
+                if (p != null && !applied(p, sequence, known)) {
+                    pending.remove(oldUsername, p);
+                    p.setUsername(newUsername);
+                    released.put(oldUsername, sequence);
+                    markPending(p, sequence);
+                }
+            }
+            case PASSWORD -> {
+                Player p = replayFind(r.readUTF(), known);
+                String newPassword = r.readUTF();
+                if (p != null && !applied(p, sequence, known)) {
+                    p.setPassword(newPassword);
+                    markPending(p, sequence);
+                }
+            }
+            default -> throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+
+    // writes the fields of one journal record
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * appends one length-prefixed record: [length][crc32][sequence][type][fields], where the length and checksum
+     * cover what follows the checksum and the length has CHECKSUMMED set
+     * @param oldUsername the name given up by a rename, otherwise null
+     */
+    private static boolean append(byte type, Player p, String oldUsername, RecordWriter fields) {
+        // waiting happens outside the lock so other threads can join the same group commit
+        return awaitDurable(queue(type, p, oldUsername, fields));
+    }
+
+    /**
+     * hands one record to the writer, see append
+     * @return completes once the record is written, already failed if it could not be encoded or queued, in which
+     * case nothing about the change is kept
+     */
+    private static CompletableFuture<Void> queue(byte type, Player p, String oldUsername, RecordWriter fields) {
+        try {
+            synchronized (DataStore.class) {
+                open();
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream record = new DataOutputStream(bytes);
+                // placeholders for the length and checksum, filled in once the record is complete
+                record.writeInt(0);
+                record.writeInt(0);
+                record.writeLong(lastSequence + 1);
+                record.writeByte(type);
+                fields.write(record);
+                byte[] encoded = bytes.toByteArray();
+                ByteBuffer.wrap(encoded).putInt(0, (encoded.length - 8) | CHECKSUMMED).putInt(4, crc(encoded, 8));
+                CompletableFuture<Void> done = writer().append(encoded);
+                // sequence numbers are handed out under the lock so the writer receives records in order
+                lastSequence++;
+                journalRecords++;
+                if (oldUsername != null) {
+                    pending.remove(oldUsername, p);
+                    released.put(oldUsername, lastSequence);
+                }
+                markPending(p, lastSequence);
+                return done;
+            }
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            Metrics.increment("dataStore.errors");
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
@@ -0,0 +1,188 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Rates how hard every word is by playing many simulated games on it, and sorts the words into new difficulty lists
+ * usage: java DifficultyCalibrator [-games 1000] [-noise 0.3] [-out calibration] [word files...]
+ * @note the simulated player guesses the Solver's best letter, but a random letter instead with the -noise
+ * probability, so games on the same word play out differently the way real players do. The words are rated in
+ * parallel on every core. A word's games reach the same guessed letters again and again, so the solver's answer
+ * for each set of guessed letters is worked out once per word instead of once per game.
+ * Writes ratings.csv and words_easy.txt, words_medium.txt and words_hard.txt into the output directory, a third
+ * of the words each from most to least often solved. The game's own lists are left alone, copy them over to use them
+ */
+public class DifficultyCalibrator {
+    private static final List<String> DIFFICULTIES = List.of("easy", "medium", "hard");
+
+    /**
+     * the result of every game played on one word
+     * @param solveRate the fraction of games won
+     * @param averageWrongGuesses wrong guesses per game, lost games counting the full GameSession.MAX_GUESSES
+     */
+    public record Rating(String word, int games, double solveRate, double averageWrongGuesses) {}
+
+    private final Solver solver;
+    private final int games;
+    private final double noise;
+
+    /**
+     * @param solver the player's knowledge, normally built from every word being rated
+     * @param games games played per word
+     * @param noise chance of each guess being a random letter instead of the solver's
+     */
+    public DifficultyCalibrator(Solver solver, int games, double noise) {
+        this.solver = solver;
+        this.games = games;
+        this.noise = noise;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int games = 1000;
+        double noise = 0.3;
+        Path out = Path.of("calibration");
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-games" -> games = Integer.parseInt(args[++i]);
+                case "-noise" -> noise = Double.parseDouble(args[++i]);
+                case "-out" -> out = Path.of(args[++i]);
+                default -> files.add(Path.of(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            for (String difficulty : DIFFICULTIES) {
+                files.add(Path.of("words_" + difficulty + ".txt"));
+            }
+        }
+
+        // read the same way as WordBank, one upper case word per line, without duplicates
+        Set<String> unique = new LinkedHashSet<>();
+        for (Path file : files) {
+            for (String line : Files.readAllLines(file)) {
+                line = line.strip();
+                if (!line.isEmpty()) {
+                    unique.add(line.toUpperCase());
+                }
+            }
+        }
+        List<String> words = new ArrayList<>(unique);
+
+        long start = System.nanoTime();
+        DifficultyCalibrator calibrator = new DifficultyCalibrator(new Solver(words), games, noise);
+        List<Rating> ratings = calibrator.rateAll(words);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d words, %d games in %.1fs (%.0f games/s)%n", words.size(), (long) words.size() * games,
+                seconds, words.size() * (double) games / seconds);
+
+        Files.createDirectories(out);
+        write(out, ratings);
+        System.out.println("Wrote ratings.csv and the difficulty lists to " + out.toAbsolutePath());
+    }
+
+    /**
+     * rates every word in parallel
+     * @return the ratings from the easiest word to the hardest
+     */
+    public List<Rating> rateAll(List<String> words) {
+        return IntStream.range(0, words.size()).parallel()
+                .mapToObj(i -> rate(words.get(i)))
+                .sorted(Comparator.comparingDouble(Rating::solveRate).reversed()
+                        .thenComparingDouble(Rating::averageWrongGuesses)
+                        .thenComparing(Rating::word))
+                .toList();
+    }
+
+    /**
+     * plays every game for one word, following GameSession's rules on bitmasks instead of a session per game
+     */
+    public Rating rate(String word) {
+        int target = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                target |= 1 << (c - 'A');
+            }
+        }
+        // the solver's letter for each set of guessed letters seen so far, the pattern follows from the word and them
+        Map<Integer, Character> best = new HashMap<>();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int won = 0;
+        long wrongTotal = 0;
+        for (int g = 0; g < games; g++) {
+            int guessed = 0;
+            int wrong = 0;
+            while ((target & ~guessed) != 0 && wrong < GameSession.MAX_GUESSES) {
+                int bit;
+                if (random.nextDouble() < noise) {
+                    bit = randomLetter(guessed, random);
+                } else {
+                    int mask = guessed;
+                    char c = best.computeIfAbsent(mask, m -> solver.bestLetter(pattern(word, m), m));
+                    bit = c == 0 ? randomLetter(guessed, random) : 1 << (c - 'A');
+                }
+                guessed |= bit;
+                if ((target & bit) == 0) {
+                    wrong++;
+                }
+            }
+            if ((target & ~guessed) == 0) {
+                won++;
+            }
+            wrongTotal += wrong;
+        }
+        return new Rating(word, games, won / (double) games, wrongTotal / (double) games);
+    }
+
+    // a letter not guessed yet, all of them equally likely
+    private static int randomLetter(int guessed, ThreadLocalRandom random) {
+        int left = ~guessed & ((1 << 26) - 1);
+        for (int skip = random.nextInt(Integer.bitCount(left)); skip > 0; skip--) {
+            left &= left - 1;
+        }
+        return Integer.lowestOneBit(left);
+    }
+
+    // the word as the player sees it, with '_' for letters not guessed yet
+    private static String pattern(String word, int guessed) {
+        char[] pattern = word.toCharArray();
+        for (int i = 0; i < pattern.length; i++) {
+            char c = pattern[i];
+            if (c >= 'A' && c <= 'Z' && (guessed & (1 << (c - 'A'))) == 0) {
+                pattern[i] = '_';
+            }
+        }
+        return new String(pattern);
+    }
+
+    private static void write(Path out, List<Rating> ratings) throws IOException {
+        List<String> csv = new ArrayList<>();
+        csv.add("word,games,solveRate,averageWrongGuesses,difficulty");
+        List<List<String>> buckets = new ArrayList<>();
+        for (int d = 0; d < DIFFICULTIES.size(); d++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int i = 0; i < ratings.size(); i++) {
+            Rating r = ratings.get(i);
+            // equal thirds by rank, so each difficulty keeps a third of the words
+            int d = (int) ((long) i * DIFFICULTIES.size() / ratings.size());
+            buckets.get(d).add(r.word().toLowerCase(Locale.ROOT));
+            csv.add(String.format(Locale.ROOT, "%s,%d,%.4f,%.3f,%s", r.word(), r.games(), r.solveRate(),
+                    r.averageWrongGuesses(), DIFFICULTIES.get(d)));
+        }
+        Files.write(out.resolve("ratings.csv"), csv);
+        for (int d = 0; d < DIFFICULTIES.size(); d++) {
+            Files.write(out.resolve("words_" + DIFFICULTIES.get(d) + ".txt"), buckets.get(d));
+        }
+    }
+}
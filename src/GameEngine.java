@@ -0,0 +1,424 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Headless Hangman engine hosting many games at once, keyed by session id
+ * @note every method is safe to call from any thread. Each game is locked on its own,
+ * so guesses in different games never wait for each other. The Swing GUI, the console and
+ * any other front end are thin clients of this class
+ * @note games nobody has guessed in for hangman.sessionIdleMinutes (30) are dropped and recorded as a loss,
+ * as are the least recently played ones beyond hangman.maxSessions (100000), so abandoned games cannot pile up
+ */
+public class GameEngine {
+    private static final List<String> DIFFICULTIES = List.of("Easy", "Medium", "Hard");
+    // see Metrics, looked up once so timing a call costs no map lookup
+    private static final LatencyHistogram LOGIN_TIME = Metrics.timer("engine.login");
+    private static final LatencyHistogram START_TIME = Metrics.timer("engine.startGame");
+    private static final LatencyHistogram GUESS_TIME = Metrics.timer("game.guess");
+
+    /**
+     * how a login attempt ended
+     */
+    public enum LoginStatus { LOGGED_IN, SIGNED_UP, WRONG_PASSWORD, USERNAME_TAKEN, INVALID, UNAVAILABLE }
+
+    /**
+     * @param player the logged in player, null unless the status is LOGGED_IN or SIGNED_UP
+     * @param message text to show the user when the login failed
+     */
+    public record LoginResult(LoginStatus status, Player player, String message) {
+        public boolean success() {
+            return player != null;
+        }
+    }
+
+    /**
+     * what a guess did
+     * ACCEPTED: the letter was new and has been applied
+     * INVALID_LETTER: not a letter, nothing changed
+     * ALREADY_GUESSED: the letter was tried before, nothing changed
+     */
+    public enum GuessOutcome { ACCEPTED, INVALID_LETTER, ALREADY_GUESSED }
+
+    /**
+     * a snapshot of one game, safe to hand to another thread
+     * @param guessed the letters guessed so far, see GameSession.getGuessedLetters
+     * @param state 1 for a win, -1 for a loss and 0 while the game is going on, as in GameSession.gameState
+     * @param targetWord the word being guessed, only filled in once the game is over
+     */
+    public record GameView(String sessionId, String username, String difficulty, String obfuscatedWord,
+                           int wrongGuesses, int remainingGuesses, String guessed, int state, String targetWord) {
+        public boolean isOver() {
+            return state != 0;
+        }
+    }
+
+    /**
+     * @param correct true if the letter is in the word
+     * @param score the score recorded for the player once the game is over, otherwise 0
+     */
+    public record GuessResult(GuessOutcome outcome, boolean correct, int score, GameView view) {}
+
+    // one game being played
+    private static final class ActiveGame {
+        final String id;
+        final Player player;
+        final String difficulty;
+        final GameSession session;
+        // the game's number in the GameLog, -1 if there is no log
+        final int logId;
+        // set once the score has been recorded or the game was abandoned, no more guesses are taken after that
+        boolean over = false;
+
+        ActiveGame(String id, Player player, String difficulty, GameSession session, int logId) {
+            this.id = id;
+            this.player = player;
+            this.difficulty = difficulty;
+            this.session = session;
+            this.logId = logId;
+        }
+
+        // callers hold the lock on this game
+        GameView view() {
+            int state = session.gameState();
+            return new GameView(id, player.getUsername(), difficulty, session.getObfuscatedWord(),
+                    session.getWrongGuesses(), session.getRemainingGuesses(), session.getGuessedLetters(), state,
+                    state == 0 ? null : session.getTargetWord());
+        }
+    }
+
+    private final PlayerRegistry players;
+    private final SessionStore<ActiveGame> games;
+    // every start, guess and end for later analysis, may be null
+    private final GameLog log;
+    // high scores of every player, kept up to date as games finish
+    private final Leaderboard leaderboard = new Leaderboard(GameSession.MAX_GUESSES * 10);
+
+    /**
+     * opens the player store, players are loaded lazily as they log in, and logs every game to
+     * hangman.gameLog (games.log), see GameLog
+     * @note every stored player is read once in the background to fill the leaderboard, a chunk at a time and
+     * without holding up logins, see DataStore.forEachPlayer. Games finished meanwhile are ranked as they finish
+     */
+    public GameEngine() {
+        this(openStore(), GameLog.fromSystemProperties());
+        CompletableFuture.runAsync(() -> leaderboard.load(DataStore::forEachPlayer));
+        // word lists edited while the game is running are picked up by new games
+        WordBankRegistry.startWatching();
+    }
+
+    public GameEngine(PlayerRegistry players) {
+        this(players, null);
+    }
+
+    /**
+     * @param log where every game is logged, or null for no log
+     */
+    public GameEngine(PlayerRegistry players, GameLog log) {
+        this.players = players;
+        this.log = log;
+        Duration idle = Duration.ofMinutes(Long.getLong("hangman.sessionIdleMinutes", 30));
+        int maxSessions = Integer.getInteger("hangman.maxSessions", 100_000);
+        this.games = new SessionStore<>(idle, maxSessions, (id, game, cause) -> abandoned(game));
+    }
+
+    private static PlayerRegistry openStore() {
+        DataStore.open();
+        return new PlayerRegistry(DataStore::loadPlayer);
+    }
+
+    public List<String> getDifficulties() {
+        return DIFFICULTIES;
+    }
+
+    /**
+     * logs a player in, or signs them up if the username is not taken
+     * @note merges login and signup into one step, as the GUI has always done
+     */
+    public LoginResult login(String user, String pass) {
+        JfrEvents.Login event = JfrEvents.ENABLED ? JfrEvents.begin(new JfrEvents.Login()) : null;
+        long start = System.nanoTime();
+        LoginResult result = attemptLogin(user, pass);
+        Metrics.recordSince(LOGIN_TIME, start);
+        Metrics.increment("login." + result.status().name().toLowerCase());
+        if (event != null && event.shouldCommit()) {
+            event.username = user;
+            event.status = result.status().name();
+            event.commit();
+        }
+        return result;
+    }
+
+    private LoginResult attemptLogin(String user, String pass) {
+        Player existing;
+        try {
+            existing = players.find(user);
+        } catch (UncheckedIOException e) {
+            // a read error must not be treated as a free username, or the account would be replaced
+            return new LoginResult(LoginStatus.UNAVAILABLE, null, "Could not read player data, please try again.");
+        }
+        if (existing == null) {
+            return signup(user, pass);
+        }
+        if (!existing.checkPassword(pass)) {
+            // usernames are unique, so a wrong password cannot create a second account with the same name
+            return new LoginResult(LoginStatus.WRONG_PASSWORD, null, "Incorrect password for '" + user + "'.");
+        }
+        return new LoginResult(LoginStatus.LOGGED_IN, existing, null);
+    }
+
+    /**
+     * creates a new player
+     */
+    public LoginResult signup(String user, String pass) {
+        Player p;
+        try {
+            p = new Player(user, pass);
+        } catch (IllegalArgumentException e) {
+            return new LoginResult(LoginStatus.INVALID, null, e.getMessage());
+        }
+        try {
+            if (!players.register(p)) {
+                return new LoginResult(LoginStatus.USERNAME_TAKEN, null, "The username '" + user + "' is already taken.");
+            }
+        } catch (UncheckedIOException e) {
+            return new LoginResult(LoginStatus.UNAVAILABLE, null, "Could not read player data, please try again.");
+        }
+        // only the new player is appended to the journal instead of rewriting every player
+        if (!DataStore.recordNewPlayer(p)) {
+            // an account that was never saved must not be reported as created
+            players.unregister(p);
+            return new LoginResult(LoginStatus.UNAVAILABLE, null, "Could not save player data, please try again.");
+        }
+        return new LoginResult(LoginStatus.SIGNED_UP, p, null);
+    }
+
+    /**
+     * @return the player with this username, or null if there is none
+     */
+    public Player findPlayer(String username) {
+        return players.find(username);
+    }
+
+    /**
+     * @return false if the new username is already taken
+     */
+    public boolean renamePlayer(Player p, String newUsername) {
+        String oldUsername = p.getUsername();
+        // rename also moves the player to the new key, and fails if the name was taken in the meantime. The old key
+        // is only dropped once the DataStore has released the old name, see PlayerRegistry.rename
+        if (!players.rename(p, newUsername, () -> DataStore.recordUsernameChange(oldUsername, p))) {
+            return false;
+        }
+        leaderboard.rename(oldUsername, p);
+        return true;
+    }
+
+    public void changePassword(Player p, String newPassword) {
+        p.setPassword(newPassword);
+        DataStore.recordPasswordChange(p);
+    }
+
+    /**
+     * starts a game for the player with a random word of the difficulty
+     * @throws IOException if the word list for the difficulty cannot be loaded
+     */
+    public GameView startGame(Player player, String difficulty) throws IOException {
+        long start = System.nanoTime();
+        // the word bank is loaded once per difficulty and shared between games, and the selector avoids
+        // giving the player a word they had in their last few games
+        String word = WordSelector.forBank(WordBankRegistry.get(difficulty)).next(player);
+        int logId = log == null ? -1 : log.started(player.getUsername(), difficulty, word);
+        ActiveGame game = new ActiveGame(UUID.randomUUID().toString(), player, difficulty, new GameSession(word), logId);
+        games.put(game.id, game);
+        synchronized (game) {
+            GameView view = game.view();
+            Metrics.recordSince(START_TIME, start);
+            if (JfrEvents.ENABLED) {
+                JfrEvents.GameStart event = new JfrEvents.GameStart();
+                if (event.shouldCommit()) {
+                    event.sessionId = game.id;
+                    event.username = player.getUsername();
+                    event.difficulty = difficulty;
+                    event.wordLength = word.length();
+                    event.commit();
+                }
+            }
+            return view;
+        }
+    }
+
+    /**
+     * applies one guess, and records the score once it finishes the game
+     * @throws IllegalArgumentException if there is no running game with this id
+     */
+    public GuessResult guess(String sessionId, char c) {
+        ActiveGame game = require(sessionId);
+        CompletableFuture<Void> saved = null;
+        GuessResult result;
+        synchronized (game) {
+            char upper = Character.toUpperCase(c);
+            if (!Character.isLetter(upper)) {
+                return new GuessResult(GuessOutcome.INVALID_LETTER, false, 0, game.view());
+            }
+            if (game.over || game.session.gameState() != 0) {
+                // another thread finished or dropped this game while we waited for the lock
+                throw new IllegalArgumentException("The game " + sessionId + " is already over.");
+            }
+            if (game.session.hasGuessed(c)) {
+                return new GuessResult(GuessOutcome.ALREADY_GUESSED, false, 0, game.view());
+            }
+            // passes the guessed character to the game session
+            long start = System.nanoTime();
+            boolean correct = game.session.guess(c);
+            Metrics.recordSince(GUESS_TIME, start);
+            if (log != null) {
+                log.guessed(game.logId, upper, correct);
+            }
+            if (JfrEvents.ENABLED) {
+                JfrEvents.Guess event = new JfrEvents.Guess();
+                if (event.shouldCommit()) {
+                    event.sessionId = sessionId;
+                    event.letter = upper;
+                    event.correct = correct;
+                    event.wrongGuesses = game.session.getWrongGuesses();
+                    event.commit();
+                }
+            }
+            int state = game.session.gameState();
+            int score = 0;
+            // 1 is for a win, -1 is failed, and 0 means that the game is ongoing
+            if (state != 0) {
+                if (state == 1) {
+                    // once the game is won calculate a score based on how many guesses the user
+                    // has remaining multiplied by 10 to look nicer
+                    score = game.session.getRemainingGuesses() * 10;
+                }
+                saved = finish(game, score);
+            }
+            result = new GuessResult(GuessOutcome.ACCEPTED, correct, score, game.view());
+        }
+        if (saved != null) {
+            saved(saved);
+        }
+        return result;
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no running game with this id
+     */
+    public GameView state(String sessionId) {
+        ActiveGame game = require(sessionId);
+        synchronized (game) {
+            return game.view();
+        }
+    }
+
+    /**
+     * @return the letter the solver would guess next in this game
+     * @throws IllegalArgumentException if there is no running game with this id
+     * @throws IOException if the word list for the game's difficulty cannot be loaded
+     */
+    public char hint(String sessionId) throws IOException {
+        ActiveGame game = require(sessionId);
+        // the solver's index is built once per word bank and shared by every game using it
+        Solver solver = Solver.forBank(WordBankRegistry.get(game.difficulty));
+        synchronized (game) {
+            return solver.bestLetter(game.session);
+        }
+    }
+
+    /**
+     * drops a running game without recording a score, e.g. when its player goes back to the menu
+     */
+    public void abandonGame(String sessionId) {
+        ActiveGame game = sessionId == null ? null : games.remove(sessionId);
+        if (game != null) {
+            synchronized (game) {
+                game.over = true;
+                ended(game, GameLog.Outcome.ABANDONED, 0);
+            }
+        }
+    }
+
+    /**
+     * @return the high score rankings of every player, per difficulty and Leaderboard.OVERALL
+     */
+    public Leaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    // number of games currently being played
+    public int activeGames() {
+        return games.size();
+    }
+
+    /**
+     * records the score for the difficulty and stops tracking the finished game, callers hold the lock on the game
+     * @return completes once the score is written, pass it to saved after releasing the lock
+     */
+    private CompletableFuture<Void> finish(ActiveGame game, int score) {
+        games.remove(game.id);
+        game.over = true;
+        int state = game.session.gameState();
+        ended(game, state == 1 ? GameLog.Outcome.WON : state == -1 ? GameLog.Outcome.LOST : GameLog.Outcome.DROPPED,
+                score);
+        game.player.recordScore(game.difficulty, score);
+        leaderboard.update(game.player);
+        return DataStore.recordScore(game.player, game.difficulty, score);
+    }
+
+    /**
+     * waits for a finished game's score to be durable and compacts the journal when it is due, called without
+     * holding the game's lock: a virtual thread that blocks inside synchronized keeps its carrier thread, so a few
+     * games ending at once could stall every other request
+     */
+    private static void saved(CompletableFuture<Void> saved) {
+        DataStore.awaitDurable(saved);
+        // only players changed since the last checkpoint are rewritten, once the journal is long enough
+        DataStore.compactIfNeeded();
+    }
+
+    // logs the end of a game and emits it to the flight recorder, callers hold the lock on the game
+    private void ended(ActiveGame game, GameLog.Outcome outcome, int score) {
+        if (log != null) {
+            log.ended(game.logId, outcome, score);
+        }
+        if (JfrEvents.ENABLED) {
+            JfrEvents.GameEnd event = new JfrEvents.GameEnd();
+            if (event.shouldCommit()) {
+                event.sessionId = game.id;
+                event.username = game.player.getUsername();
+                event.difficulty = game.difficulty;
+                event.outcome = outcome.name().toLowerCase();
+                event.score = score;
+                event.wrongGuesses = game.session.getWrongGuesses();
+                event.commit();
+            }
+        }
+    }
+
+    // a game evicted from the store for being idle too long, or to make room, counts as a loss
+    private void abandoned(ActiveGame game) {
+        CompletableFuture<Void> saved = null;
+        synchronized (game) {
+            if (!game.over) {
+                saved = finish(game, 0);
+            }
+        }
+        if (saved != null) {
+            saved(saved);
+        }
+    }
+
+    private ActiveGame require(String sessionId) {
+        ActiveGame game = sessionId == null ? null : games.get(sessionId);
+        if (game == null) {
+            throw new IllegalArgumentException("No running game with id " + sessionId + ".");
+        }
+        return game;
+    }
+}
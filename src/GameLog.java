@@ -0,0 +1,288 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only binary log of every game: when it started, for whom, with which word, each guess and how it ended
+ * @note callers write their record straight into a shared direct buffer, which takes a lock for a few stores and
+ * never waits for the disk. A full buffer is handed to a daemon thread that writes it in one call while callers
+ * carry on in the next one, and a buffer that has not filled is written after FLUSH_MILLIS. If every buffer is
+ * waiting to be written the record is dropped and counted in the gameLog.dropped metric rather than slowing a
+ * guess. The log is for analytics, so it is not forced to disk, see GameLogReplay for reading it back.
+ *
+ * Records are [length][type][time in epoch millis][fields], where length counts the bytes after itself:
+ * OPEN when the log is opened, START [game][username][difficulty][word], GUESS [game][letter][correct] and
+ * END [game][outcome][score]. Games are numbered from 0 again after each OPEN, since a game never outlives the
+ * process that started it. Strings are a 2 byte length and UTF-8, a letter is a 2 byte char
+ */
+public class GameLog {
+    static final byte OPEN = 1;
+    static final byte START = 2;
+    static final byte GUESS = 3;
+    static final byte END = 4;
+    // length, type and time
+    static final int HEADER = 4 + 1 + 8;
+    // big enough for a START record with the longest strings
+    private static final int BUFFER_SIZE = 1 << 18;
+    // longest string a record can hold, its length is written as an unsigned short
+    private static final int MAX_STRING = 0xFFFF;
+    // longest a record waits in a buffer that is not full yet
+    private static final long FLUSH_MILLIS = 200;
+    // queued by close, the writer stops once it reaches it
+    private static final Object STOP = new Object();
+
+    /**
+     * how a game ended, stored as its ordinal
+     * DROPPED: left idle too long or evicted to make room, recorded as a loss
+     * ABANDONED: the player started another game instead, nothing recorded
+     */
+    public enum Outcome { WON, LOST, DROPPED, ABANDONED }
+
+    private final Path path;
+    // the buffer records are written into, null while every buffer is waiting for the writer. Guarded by this
+    private ByteBuffer filling;
+    // games started since the log was opened. Guarded by this
+    private int nextGame = 0;
+    // buffers waiting to be written, flush markers and STOP, in the order they were handed over. Only added to
+    // while holding the lock and not closed, so nothing is queued behind a writer that has stopped
+    private final BlockingQueue<Object> full = new LinkedBlockingQueue<>();
+    // written buffers ready to be filled again
+    private final BlockingQueue<ByteBuffer> free;
+    private final Thread thread;
+    // set by close or when writing fails, records are dropped from then on. Guarded by this
+    private boolean closed = false;
+
+    /**
+     * @param buffers how many BUFFER_SIZE buffers records may fill while the writer is behind, at least 2
+     * @note call close to write out what is still buffered, fromSystemProperties does so on exit
+     */
+    public GameLog(Path path, int buffers) {
+        this.path = path;
+        free = new ArrayBlockingQueue<>(buffers);
+        for (int i = 1; i < buffers; i++) {
+            free.add(ByteBuffer.allocateDirect(BUFFER_SIZE));
+        }
+        // the run starts with OPEN, the file is only touched once the writer thread has checked it
+        filling = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        header(filling, OPEN, 0);
+        thread = new Thread(this::run, "hangman-game-log");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return the log named by hangman.gameLog, games.log by default, or null if it is set to nothing
+     * @note hangman.gameLogBuffers (8) buffers of 256KB may wait to be written at once. The log is closed on exit
+     */
+    public static GameLog fromSystemProperties() {
+        String file = System.getProperty("hangman.gameLog", "games.log");
+        if (file.isBlank()) {
+            return null;
+        }
+        GameLog log = new GameLog(Path.of(file), Math.max(2, Integer.getInteger("hangman.gameLogBuffers", 8)));
+        Runtime.getRuntime().addShutdownHook(new Thread(log::close, "hangman-game-log-flush"));
+        return log;
+    }
+
+    /**
+     * logs the start of a game
+     * @return the game's number, passed to guessed and ended
+     */
+    public int started(String username, String difficulty, String word) {
+        byte[] user = utf8(username);
+        byte[] diff = utf8(difficulty);
+        byte[] target = utf8(word);
+        synchronized (this) {
+            int game = nextGame++;
+            ByteBuffer record = reserve(START, 4 + 6 + user.length + diff.length + target.length);
+            if (record != null) {
+                record.putInt(game);
+                putString(record, user);
+                putString(record, diff);
+                putString(record, target);
+            }
+            return game;
+        }
+    }
+
+    public synchronized void guessed(int game, char letter, boolean correct) {
+        ByteBuffer record = reserve(GUESS, 4 + 2 + 1);
+        if (record != null) {
+            record.putInt(game);
+            record.putChar(letter);
+            record.put((byte) (correct ? 1 : 0));
+        }
+    }
+
+    public synchronized void ended(int game, Outcome outcome, int score) {
+        ByteBuffer record = reserve(END, 4 + 1 + 4);
+        if (record != null) {
+            record.putInt(game);
+            record.put((byte) outcome.ordinal());
+            record.putInt(score);
+        }
+    }
+
+    /**
+     * blocks until every record logged so far has been written
+     */
+    public void flush() {
+        CompletableFuture<Void> marker = new CompletableFuture<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            handOver();
+            full.add(marker);
+        }
+        marker.join();
+    }
+
+    /**
+     * writes what has been logged and stops the writer, records logged after this are dropped
+     */
+    public void close() {
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                // the writer is stopped by a marker rather than an interrupt, which would close the file mid-write
+                handOver();
+                full.add(STOP);
+            }
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * callers hold the lock
+     * @return the buffer with the record's header written and room for its fields, or null if it is dropped
+     */
+    private ByteBuffer reserve(byte type, int fields) {
+        if (HEADER + fields > BUFFER_SIZE) {
+            // could never fit in a buffer, and must not leave a header without its fields behind
+            Metrics.increment("gameLog.dropped");
+            return null;
+        }
+        if (!closed && (filling == null || filling.remaining() < HEADER + fields)) {
+            handOver();
+        }
+        if (closed || filling == null) {
+            Metrics.increment("gameLog.dropped");
+            return null;
+        }
+        header(filling, type, fields);
+        return filling;
+    }
+
+    // callers hold the lock: queues the filling buffer for the writer if it has anything in it, and takes a free one
+    private void handOver() {
+        if (filling != null && filling.position() == 0) {
+            return;
+        }
+        if (filling != null) {
+            full.add(filling);
+        }
+        filling = free.poll();
+    }
+
+    private static void header(ByteBuffer buffer, byte type, int fields) {
+        buffer.putInt(1 + 8 + fields);
+        buffer.put(type);
+        buffer.putLong(System.currentTimeMillis());
+    }
+
+    /**
+     * encodes a string for putString, cut at a character boundary if it is longer than its 2 byte length can say,
+     * which only a word list with absurdly long words could produce
+     */
+    private static byte[] utf8(String s) {
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length <= MAX_STRING) {
+            return utf8;
+        }
+        int length = MAX_STRING;
+        // continuation bytes are 10xxxxxx, the cut goes before the first byte of the character they belong to
+        while ((utf8[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        return Arrays.copyOf(utf8, length);
+    }
+
+    private static void putString(ByteBuffer record, byte[] utf8) {
+        record.putShort((short) utf8.length);
+        record.put(utf8);
+    }
+
+    /**
+     * background loop: cuts off a record left half written by a crash, then writes each buffer as it is handed over,
+     * or takes the filling one if nothing was handed over for FLUSH_MILLIS
+     */
+    private void run() {
+        try (FileChannel log = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long end = GameLogReplay.validLength(path);
+            log.truncate(end);
+            log.position(end);
+            while (true) {
+                Object item;
+                try {
+                    item = full.poll(FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                if (item == STOP) {
+                    break;
+                }
+                if (item == null) {
+                    synchronized (this) {
+                        if (!closed) {
+                            handOver();
+                        }
+                    }
+                    continue;
+                }
+                if (item instanceof ByteBuffer buffer) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        log.write(buffer);
+                    }
+                    buffer.clear();
+                    free.add(buffer);
+                    synchronized (this) {
+                        if (filling == null) {
+                            // records were being dropped, they can go in this buffer again
+                            filling = free.poll();
+                        }
+                    }
+                } else {
+                    ((CompletableFuture<?>) item).complete(null);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            Metrics.increment("gameLog.errors");
+            // games go on without a log, and nobody waiting on a flush is left hanging
+            synchronized (this) {
+                closed = true;
+                for (Object item : full) {
+                    if (item instanceof CompletableFuture<?> marker) {
+                        marker.complete(null);
+                    }
+                }
+                full.clear();
+            }
+        }
+    }
+}
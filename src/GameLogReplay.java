@@ -0,0 +1,227 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a GameLog back through a listener, e.g. to rebuild player statistics or work out what scores would have
+ * been under different rules
+ * usage: java GameLogReplay [-top 20] [file, games.log by default]
+ * @note the file is memory-mapped a large window at a time and read in place, only the strings of START records
+ * are decoded into objects, so a replay runs at millions of records a second. A record cut off at the end of
+ * the file is ignored. Statistics prints the players with the most games, with their scores as recorded and
+ * as given by the example rules in rescore
+ */
+public class GameLogReplay {
+    // bytes mapped at a time, a record is never split between two windows
+    private static final long WINDOW = 1 << 30;
+
+    /**
+     * receives the records of a log in order, every method does nothing unless overridden
+     * @note game numbers start again from 0 after every opened call
+     */
+    public interface Listener {
+        default void opened(long time) {}
+
+        default void started(long time, int game, String username, String difficulty, String word) {}
+
+        default void guessed(long time, int game, char letter, boolean correct) {}
+
+        default void ended(long time, int game, GameLog.Outcome outcome, int score) {}
+    }
+
+    public static void main(String[] args) throws IOException {
+        int top = 20;
+        Path file = Path.of("games.log");
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-top")) {
+                top = Integer.parseInt(args[++i]);
+            } else {
+                file = Path.of(args[i]);
+            }
+        }
+        Statistics stats = new Statistics();
+        long start = System.nanoTime();
+        long records = replay(file, stats);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d records in %.2fs (%.0f records/s), %d games by %d players%n", records, seconds,
+                records / seconds, stats.games, stats.players.size());
+
+        List<Map.Entry<String, PlayerStatistics>> players = new ArrayList<>(stats.players.entrySet());
+        players.sort(Comparator.comparing((Map.Entry<String, PlayerStatistics> e) -> e.getValue().games).reversed());
+        System.out.printf("%n%-20s %8s %8s %10s %10s %10s%n", "player", "games", "won", "wrong/game", "score",
+                "rescored");
+        for (Map.Entry<String, PlayerStatistics> e : players.subList(0, Math.min(top, players.size()))) {
+            PlayerStatistics p = e.getValue();
+            System.out.printf("%-20s %8d %8d %10.2f %10d %10d%n", e.getKey(), p.games, p.won,
+                    p.wrongGuesses / (double) p.games, p.score, p.rescored);
+        }
+    }
+
+    /**
+     * reads the whole log
+     * @return the number of records read
+     */
+    public static long replay(Path file, Listener listener) throws IOException {
+        return read(file, listener, new long[1]);
+    }
+
+    /**
+     * @return the length of the log up to the end of its last complete record, 0 if there is no file
+     */
+    public static long validLength(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long[] end = new long[1];
+        read(file, null, end);
+        return end[0];
+    }
+
+    // a null listener only finds where the records end, without decoding any of them
+    private static long read(Path file, Listener listener, long[] end) throws IOException {
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long base = 0;
+            while (base < size) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(WINDOW, size - base));
+                int limit = window.limit();
+                int pos = 0;
+                while (pos + 4 <= limit) {
+                    int length = window.getInt(pos);
+                    if (length < GameLog.HEADER - 4 || pos + 4L + length > limit) {
+                        break;
+                    }
+                    if (listener != null) {
+                        dispatch(window, pos + 4, listener);
+                    }
+                    pos += 4 + length;
+                    records++;
+                }
+                end[0] = base + pos;
+                if (pos == 0 || base + limit == size) {
+                    // the rest is a partial record, or garbage left by a crash
+                    break;
+                }
+                base += pos;
+            }
+        }
+        return records;
+    }
+
+    private static void dispatch(ByteBuffer record, int pos, Listener listener) {
+        byte type = record.get(pos);
+        long time = record.getLong(pos + 1);
+        int fields = pos + 9;
+        switch (type) {
+            case GameLog.OPEN -> listener.opened(time);
+            case GameLog.START -> {
+                int game = record.getInt(fields);
+                int at = fields + 4;
+                String username = getString(record, at);
+                at += 2 + (record.getShort(at) & 0xFFFF);
+                String difficulty = getString(record, at);
+                at += 2 + (record.getShort(at) & 0xFFFF);
+                listener.started(time, game, username, difficulty, getString(record, at));
+            }
+            case GameLog.GUESS -> listener.guessed(time, record.getInt(fields), record.getChar(fields + 4),
+                    record.get(fields + 6) != 0);
+            case GameLog.END -> listener.ended(time, record.getInt(fields),
+                    GameLog.Outcome.values()[record.get(fields + 4)], record.getInt(fields + 5));
+            default -> {
+                // written by a newer version, skipped
+            }
+        }
+    }
+
+    private static String getString(ByteBuffer record, int at) {
+        byte[] utf8 = new byte[record.getShort(at) & 0xFFFF];
+        record.get(at + 2, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * example of rules the log allows that the flat score history does not: the game's score scaled by how many
+     * different letters the word has, so long varied words count for more
+     */
+    public static int rescore(String word, int wrongGuesses, boolean won) {
+        if (!won) {
+            return 0;
+        }
+        int letters = (int) word.chars().filter(c -> c >= 'A' && c <= 'Z').distinct().count();
+        return (GameSession.MAX_GUESSES - wrongGuesses) * letters;
+    }
+
+    // one player's totals
+    static final class PlayerStatistics {
+        int games;
+        int won;
+        long wrongGuesses;
+        long score;
+        long rescored;
+    }
+
+    /**
+     * per player totals, the state of the games in the current run is kept in arrays indexed by game number
+     */
+    static final class Statistics implements Listener {
+        final Map<String, PlayerStatistics> players = new HashMap<>();
+        long games;
+        private String[] usernames = new String[1024];
+        private String[] words = new String[1024];
+        private int[] wrong = new int[1024];
+
+        @Override
+        public void opened(long time) {
+            Arrays.fill(usernames, null);
+        }
+
+        @Override
+        public void started(long time, int game, String username, String difficulty, String word) {
+            if (game >= usernames.length) {
+                int size = Math.max(game + 1, usernames.length * 2);
+                usernames = Arrays.copyOf(usernames, size);
+                words = Arrays.copyOf(words, size);
+                wrong = Arrays.copyOf(wrong, size);
+            }
+            usernames[game] = username;
+            words[game] = word;
+            wrong[game] = 0;
+        }
+
+        @Override
+        public void guessed(long time, int game, char letter, boolean correct) {
+            if (!correct && game < wrong.length) {
+                wrong[game]++;
+            }
+        }
+
+        @Override
+        public void ended(long time, int game, GameLog.Outcome outcome, int score) {
+            // a START dropped from a full queue leaves its game unknown
+            if (game >= usernames.length || usernames[game] == null || outcome == GameLog.Outcome.ABANDONED) {
+                return;
+            }
+            PlayerStatistics p = players.computeIfAbsent(usernames[game], u -> new PlayerStatistics());
+            boolean won = outcome == GameLog.Outcome.WON;
+            games++;
+            p.games++;
+            p.won += won ? 1 : 0;
+            p.wrongGuesses += wrong[game];
+            p.score += score;
+            p.rescored += rescore(words[game], wrong[game], won);
+            usernames[game] = null;
+        }
+    }
+}
@@ -3,10 +3,22 @@ import java.util.Set;
 
 public class GameSession {
     private final String targetWord;
-    // stores unique elements in a HashSet and prevents nonunique elements from being added
-    private final Set<Character> guessedChar = new HashSet<>();
+    // bit i is set once the letter 'A' + i has been guessed, so a repeated guess is a single bit test
+    private int guessedMask = 0;
+    // bit i is set if the letter 'A' + i appears somewhere in the target word
+    private final int targetMask;
+    // for each letter the positions in the revealed buffer where it appears, so a correct guess only touches those cells
+    private final int[][] letterPositions = new int[26][];
+    // letters outside A-Z in the target word, e.g. accented ones, and those guessed so far. They are rare enough
+    // that a set is fine, and both stay empty for plain A-Z words
+    private final Set<Character> otherLetters = new HashSet<>();
+    private final Set<Character> otherGuessed = new HashSet<>();
+    // the masked word as shown to the player, letters separated by spaces e.g. "A _ _ L E"
+    private final char[] revealed;
+    // cached copy of the revealed buffer, only rebuilt after a correct guess changes it
+    private String obfuscatedWord;
     private int wrongGuesses = 0;
-    private static final int MAX_GUESSES = 6;
+    public static final int MAX_GUESSES = 6;
 
     // game session and the word chosen
     public GameSession(String targetWord) {
@@ -14,6 +26,53 @@ public class GameSession {
             throw new IllegalArgumentException("Word cannot be null or blank.");
         }
         this.targetWord = targetWord.toUpperCase();
+        // the letters of the word are worked out once here instead of rescanning the word on every guess
+        int length = this.targetWord.length();
+        int mask = 0;
+        int[] counts = new int[26];
+        revealed = new char[length * 2 - 1];
+        for (int i = 0; i < length; i++) {
+            char c = this.targetWord.charAt(i);
+            int bit = letterBit(c);
+            mask |= bit;
+            if (bit != 0) {
+                counts[c - 'A']++;
+                revealed[i * 2] = '_';
+            } else if (Character.isLetter(c)) {
+                otherLetters.add(c);
+                revealed[i * 2] = '_';
+            } else {
+                // spaces, hyphens and other non-letters cannot be guessed so they are shown from the start
+                revealed[i * 2] = c;
+            }
+            if (i < length - 1) {
+                revealed[i * 2 + 1] = ' ';
+            }
+        }
+        this.targetMask = mask;
+        // second pass fills in the index of every letter's positions now that the array sizes are known
+        for (int l = 0; l < 26; l++) {
+            if (counts[l] > 0) {
+                letterPositions[l] = new int[counts[l]];
+                counts[l] = 0;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            char c = this.targetWord.charAt(i);
+            if (letterBit(c) != 0) {
+                letterPositions[c - 'A'][counts[c - 'A']++] = i * 2;
+            }
+        }
+    }
+
+    /**
+     * @return the bit representing an upper case letter A-Z, or 0 for any other character
+     */
+    private static int letterBit(char c) {
+        if (c < 'A' || c > 'Z') {
+            return 0;
+        }
+        return 1 << (c - 'A');
     }
 
     /**
@@ -21,14 +80,41 @@ public class GameSession {
      */
     public boolean guess(char c) {
         c = Character.toUpperCase(c);
-        if (!Character.isLetter(c) || guessedChar.contains(c)) {
-            return false; // character already guessed or isn't an alphabetic character
+        int bit = letterBit(c);
+        if (bit == 0) {
+            return Character.isLetter(c) && guessOther(c);
+        }
+        if ((guessedMask & bit) != 0) {
+            return false; // character already guessed
+        }
+        guessedMask |= bit;
+        if ((targetMask & bit) == 0) {
+            wrongGuesses++;
+            return false;
+        }
+        // reveal only the positions of the guessed letter and drop the cached string so it is rebuilt on next read
+        for (int pos : letterPositions[c - 'A']) {
+            revealed[pos] = c;
+        }
+        obfuscatedWord = null;
+        return true;
+    }
+
+    // a letter outside A-Z, revealed by scanning the word since such letters have no position index
+    private boolean guessOther(char c) {
+        if (!otherGuessed.add(c)) {
+            return false;
         }
-        guessedChar.add(c);
-        if (!targetWord.contains(Character.toString(c))) {
+        if (!otherLetters.contains(c)) {
             wrongGuesses++;
             return false;
         }
+        for (int i = 0; i < targetWord.length(); i++) {
+            if (targetWord.charAt(i) == c) {
+                revealed[i * 2] = c;
+            }
+        }
+        obfuscatedWord = null;
         return true;
     }
 
@@ -39,14 +125,8 @@ public class GameSession {
      *   0 otherwise (game in progress).
      */
     public int gameState() {
-        boolean allGuessed = true;
-        for (char c : targetWord.toCharArray()) {
-            if (!guessedChar.contains(c)) {
-                allGuessed = false;
-                break;
-            }
-        }
-        if (allGuessed) {
+        // every letter of the word has been guessed once its bits are a subset of the guessed bits
+        if ((targetMask & ~guessedMask) == 0 && otherGuessed.containsAll(otherLetters)) {
             return 1;
         }
         if (wrongGuesses >= MAX_GUESSES) {
@@ -55,17 +135,15 @@ public class GameSession {
         return 0; // game is still going on
     }
 
+    /**
+     * @return the word with unguessed letters replaced by underscores, e.g. "A _ _ L E"
+     * @note the same String instance is returned until the next correct guess reveals more letters
+     */
     public String getObfuscatedWord() {
-        StringBuilder sb = new StringBuilder();
-        for (char c : targetWord.toCharArray()) {
-            if (guessedChar.contains(c)) {
-                sb.append(c);
-            } else {
-                sb.append('_');
-            }
-            sb.append(' ');
+        if (obfuscatedWord == null) {
+            obfuscatedWord = new String(revealed);
         }
-        return sb.toString().trim();
+        return obfuscatedWord;
     }
 
     public String getTargetWord() {
@@ -81,11 +159,40 @@ public class GameSession {
     }
 
     public HashSet<Character> getGuessedChars() {
-        return new HashSet<>(this.guessedChar);
+        HashSet<Character> guessed = new HashSet<>();
+        for (int i = 0; i < 26; i++) {
+            if ((guessedMask & (1 << i)) != 0) {
+                guessed.add((char) ('A' + i));
+            }
+        }
+        guessed.addAll(otherGuessed);
+        return guessed;
+    }
+
+    /**
+     * @return the guessed letters in order, A-Z first and then any others, e.g. "AEK"
+     */
+    public String getGuessedLetters() {
+        StringBuilder letters = new StringBuilder();
+        for (int i = 0; i < 26; i++) {
+            if ((guessedMask & (1 << i)) != 0) {
+                letters.append((char) ('A' + i));
+            }
+        }
+        otherGuessed.stream().sorted().forEach(letters::append);
+        return letters.toString();
+    }
+
+    /**
+     * @return the guessed letters as a bitmask where bit 0 is 'A' and bit 25 is 'Z', letters outside A-Z are not in it
+     */
+    public int getGuessedMask() {
+        return this.guessedMask;
     }
 
     public boolean hasGuessed(char c) {
-        return guessedChar.contains(Character.toUpperCase(c));
+        char upper = Character.toUpperCase(c);
+        int bit = letterBit(upper);
+        return bit != 0 ? (guessedMask & bit) != 0 : otherGuessed.contains(upper);
     }
 }
-
@@ -1,36 +1,137 @@
+import javax.swing.SwingUtilities;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+/**
+ * Controller between the HangmanGUI window and the GameEngine
+ * @note every call into the engine runs on a background worker, so reading word lists or player data never freezes
+ * the window. The results are handed back to the view on the Swing event thread, and the view shows itself as busy
+ * until they arrive. The fields of this class are only touched on the event thread
+ * @note the window is shown before the player store is opened, which happens in the background. A login made while
+ * it is still opening waits for it and then reads only that player, see DataStore.open.
+ * How long after the JVM started each step finished is recorded in the startup.windowShown and startup.storeOpen
+ * timers, see Metrics
+ */
 public class Hangman {
-    private final List<Player> players;
+    // the headless engine that owns players and games, this class only connects it to the GUI
+    // it completes once the player store is open, calls into it wait for that on the worker
+    private final CompletableFuture<GameEngine> engine;
     private Player currentPlayer;
-    private WordBank wordBank;
-    private GameSession session;
+    // the game this window is playing and the last state the engine reported for it
+    private GameEngine.GameView game;
     // sets the viewing panel for the game
     private final HangmanGUI view;
-    // Define available difficulties in a mutable list
-    private final List<String> difficulties = new ArrayList<>(Arrays.asList("Easy", "Medium", "Hard"));
+    // Define available difficulties in a mutable list, filled in from the engine on the first login
+    private final List<String> difficulties = new ArrayList<>();
+    // runs the engine calls one at a time in the order they were made, so e.g. guesses cannot overtake each other
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "hangman-worker");
+        // pending work must not keep the application open once the window is closed
+        t.setDaemon(true);
+        return t;
+    });
+    // calls started but whose results have not reached the view yet
+    private int pending = 0;
 
     /**
+     * creates the controller for a window and connects the two
      * @param view frame that the all Hangman functions will be accessed
-     * @note loads players for persistence
+     * @note opens the player store in the background, players are loaded lazily on login
      */
-    public Hangman(HangmanGUI view) throws Exception {
-        players = DataStore.loadPlayers();
+    public static Hangman open(HangmanGUI view) {
+        return open(view, CompletableFuture.supplyAsync(() -> {
+            GameEngine opened = new GameEngine();
+            recordStartup("startup.storeOpen");
+            return opened;
+        }));
+    }
+
+    /**
+     * @param engine shared engine, so one JVM can serve this window alongside other front ends
+     */
+    public static Hangman open(HangmanGUI view, GameEngine engine) {
+        return open(view, CompletableFuture.completedFuture(engine));
+    }
+
+    private static Hangman open(HangmanGUI view, CompletableFuture<GameEngine> engine) {
+        Hangman controller = new Hangman(view, engine);
+        // the view is only handed the controller once it is fully constructed
+        view.setController(controller);
+        return controller;
+    }
+
+    private Hangman(HangmanGUI view, CompletableFuture<GameEngine> engine) {
+        this.engine = engine;
         this.view = view;
-        // sets the current instance of the class to be the controller for the JFrame
-        view.setController(this);
     }
 
     /**
-     * sets up the game panel GUI and the controller for the JFrame
+     * sets up the game panel GUI and the controller for the JFrame on the Swing event thread
      */
-    public static void main(String[] args) throws Exception {
-        HangmanGUI gui = new HangmanGUI();
-        Hangman ctrl = new Hangman(gui);
-        // makes the JFrame GUI visible
-        gui.setVisible(true);
+    public static void main(String[] args) {
+        SwingUtilities.invokeLater(() -> {
+            HangmanGUI gui = new HangmanGUI();
+            gui.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowOpened(WindowEvent e) {
+                    recordStartup("startup.windowShown");
+                }
+            });
+            // the store starts opening before the window is shown, but the window does not wait for it
+            Hangman.open(gui);
+            // makes the JFrame GUI visible
+            gui.setVisible(true);
+        });
+    }
+
+    // records how long after the JVM started a step of startup finished, so slow startups can be spotted
+    private static void recordStartup(String timer) {
+        long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        Metrics.timer(timer).record(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    // the engine, waiting for the player store to open if it is still opening, only called on the worker
+    private GameEngine engine() {
+        return engine.join();
+    }
+
+    /**
+     * runs work on the background worker, then done with its result on the Swing event thread
+     * @param failed called on the event thread instead of done if the work threw
+     * @return completes once done or failed has run
+     */
+    private <T> CompletableFuture<T> background(Callable<T> work, Consumer<T> done, Consumer<Throwable> failed) {
+        if (pending++ == 0) {
+            view.setBusy(true);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return work.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, worker).whenCompleteAsync((result, error) -> {
+            if (--pending == 0) {
+                view.setBusy(false);
+            }
+            if (error == null) {
+                done.accept(result);
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                cause.printStackTrace();
+                failed.accept(cause);
+            }
+        }, SwingUtilities::invokeLater);
     }
 
     /**
@@ -38,84 +139,84 @@ public class Hangman {
      * @param pass the password of the user
      * @note merges login and signup into one functionality to reduce the amount of Frames that must be created
      */
-    public void login(String user, String pass) {
-        for (Player p: players) {
-            if (p.getUsername().equals(user) && p.checkPassword(pass)) {
-                currentPlayer = p;
-                // shows the choosing difficulties screen after login
-                view.showOptionsScreen(difficulties);
+    public CompletableFuture<GameEngine.LoginResult> login(String user, String pass) {
+        return background(() -> engine().login(user, pass), result -> {
+            if (!result.success()) {
+                view.showError(result.message());
                 return;
             }
-        }
-        Player p = new Player(user, pass);
-        players.add(p);
-        currentPlayer = p;
-        // passes players to be stored as an arraylist
-        // may not matter but may be best practice? unsure
-        DataStore.savePlayers((ArrayList<Player>)players);
-        // shows the choosing difficulties screen after signup
-        view.showOptionsScreen(difficulties);
+            currentPlayer = result.player();
+            if (difficulties.isEmpty()) {
+                // the login has run, so the engine is ready and this does not wait
+                difficulties.addAll(engine.join().getDifficulties());
+            }
+            // shows the choosing difficulties screen after login or signup
+            view.showOptionsScreen(difficulties);
+        }, e -> view.showError("Could not log in, please try again."));
     }
 
     /**
      * @param diff is the difficulty of the new game started
      */
-    public void startNewGame(String diff) {
-        try {
-            wordBank = new WordBank(diff);
+    public CompletableFuture<GameEngine.GameView> startNewGame(String diff) {
+        // read here on the event thread, the work below runs on the worker
+        String unfinished = game != null && !game.isOver() ? game.sessionId() : null;
+        Player player = currentPlayer;
+        return background(() -> {
+            if (unfinished != null) {
+                // the previous round was left without finishing it
+                engine().abandonGame(unfinished);
+            }
             // creates a game session with a random word from the specified difficulty wordbank
-            session = new GameSession(wordBank.getRandomWord());
+            return engine().startGame(player, diff);
+        }, started -> {
+            game = started;
             // resets game UI
             view.resetGameUI(diff);
-        } catch (Exception e) {
+        }, e -> {
             // prints the specified error messsage
             view.showError("Failed to load words for difficulty: " + diff);
-        }
+        });
     }
 
     /**
      * @param c is the character that is being guessed
      * @param diff is the String representing the difficulty of the round
-     * @note merges login and signup into one functionality to reduce the amount of Frames that must be created
      */
-    public void handleGuess(char c, String diff) {
-        if (!Character.isLetter(c)) {
-            view.showError("Please enter A-Z only.");
-            // done so the guess panel can be closed after the failed guess and can be rerun
-            return;
-        }
-        if (session.hasGuessed(c)) {
-            view.showError("You already tried '" + c + "'.");
-            // done so the guess panel can be closed after the failed guess and can be rerun
-            return;
-        }
+    public CompletableFuture<GameEngine.GuessResult> handleGuess(char c, String diff) {
+        String sessionId = game.sessionId();
+        return background(() -> engine().guess(sessionId, c), result -> showGuess(c, result),
+                // e.g. the game was dropped after being left idle for too long
+                e -> view.showError("This game is no longer running, please start a new one."));
+    }
 
-        // passes the guessed character to the game session
-        boolean correct = session.guess(c);
-        if (!correct) {
+    // shows the result of a guess, on the event thread
+    private void showGuess(char c, GameEngine.GuessResult result) {
+        switch (result.outcome()) {
+            case INVALID_LETTER -> {
+                view.showError("Please enter a letter.");
+                // done so the guess panel can be closed after the failed guess and can be rerun
+                return;
+            }
+            case ALREADY_GUESSED -> {
+                view.showError("You already tried '" + c + "'.");
+                // done so the guess panel can be closed after the failed guess and can be rerun
+                return;
+            }
+            default -> {
+            }
+        }
+        game = result.view();
+        if (!result.correct()) {
             // draws parts of the hangman based on how many wrong guesses have been made
-            view.drawNextHangmanPart(session.getWrongGuesses());
+            view.drawNextHangmanPart(game.wrongGuesses());
         }
-        view.updateGameView(session);
-        int state = session.gameState();
-        // 1 is for a win, -1 is failed, and 0 means that the game is ongoing
-        // if the game is finished check these conditions
-        if (state != 0) {
-            int score;
-            if (state == 1) {
-                // once the game is won calculate a score based on how many guesses the user
-                // has remaining multiplied by 10 to look nicer
-                score = session.getRemainingGuesses() * 10;
-            } else {
-                // in this case the game has ended as the state could only otherwise be -1, and so the user gets a score of 0
-                score = 0;
-            }
-            // records the score for the specified difficulty
-            currentPlayer.recordScore(diff, score);
-            DataStore.savePlayers((ArrayList<Player>)players);
+        view.updateGameView(game);
+        // the engine has already recorded and saved the score once the game is over
+        if (game.isOver()) {
             // state == 1 is equivalent to a boolean where true represents a win and false is a loss
             // this changes whether "You Win!" or "Game Over" shows up in the end options menu
-            view.showEndOptions(state == 1, score);
+            view.showEndOptions(game.state() == 1, result.score());
         }
     }
 
@@ -133,11 +234,11 @@ public class Hangman {
     }
 
     public String getTargetWord() {
-        return session.getTargetWord();
+        return game.targetWord();
     }
 
     /**
-     * things to add: overall leaderboard between players, showing the word when the game is failed,
-     * different word categories/difficulty algorithm, changing username/password
+     * things to add: showing the leaderboard in the window (the engine keeps one, see GameEngine.getLeaderboard),
+     * showing the word when the game is failed, different word categories/difficulty algorithm, changing username/password
      */
-}
\ No newline at end of file
+}
@@ -1,12 +1,65 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
 
 // creates a panel to paint on and will override the paintComponent function in that panel to create our custom hangman
+// each stage of the drawing is rendered once into an image the screen can copy quickly, and a new body part only
+// repaints the small area it covers instead of the whole panel
 public class HangmanCanvas extends JPanel {
+    // every line is drawn 4 pixels wide
+    private static final BasicStroke STROKE = new BasicStroke(4);
+    // the gallows, drawn at every stage
+    private static final Shape[] GALLOWS = {
+            new Line2D.Float(50, 350, 200, 350),
+            new Line2D.Float(125, 350, 125, 50),
+            new Line2D.Float(125, 50, 300, 50),
+            new Line2D.Float(300, 50, 300, 100),
+    };
+    // the body part added by each wrong guess: head, body, arms then legs
+    private static final Shape[] PARTS = {
+            new Ellipse2D.Float(275, 100, 50, 50),
+            new Line2D.Float(300, 150, 300, 250),
+            new Line2D.Float(300, 170, 250, 200),
+            new Line2D.Float(300, 170, 350, 200),
+            new Line2D.Float(300, 250, 250, 300),
+            new Line2D.Float(300, 250, 350, 300),
+    };
+    // the drawing fits inside this area from the top left corner, including the width of the lines
+    private static final int DRAWING_WIDTH = 360;
+    private static final int DRAWING_HEIGHT = 360;
+
     private int stickmanStage;
+    // the whole drawing at each stage, rendered the first time that stage is shown. Images and screen configurations
+    // cannot be serialized, a deserialized panel starts without them and renders them again
+    private transient BufferedImage[] stages;
+    // what the images were rendered for, they are rendered again if the panel moves to a screen with another
+    // configuration or scale (DPI), or its colour changes. The drawing has a fixed size so resizing keeps them
+    private transient GraphicsConfiguration renderedFor;
+    private double renderedScale;
+    private Color renderedColor;
 
     public void setStage(int stickmanStage) {
-        this.stickmanStage = stickmanStage;
+        int stage = Math.max(0, Math.min(PARTS.length, stickmanStage));
+        int old = this.stickmanStage;
+        this.stickmanStage = stage;
+        if (stage != old) {
+            // only the parts added or removed need painting again
+            repaint(changedArea(Math.min(old, stage), Math.max(old, stage)));
+        }
+    }
+
+    // the area covered by the parts drawn from stage from up to stage to
+    private static Rectangle changedArea(int from, int to) {
+        Rectangle area = null;
+        for (int i = from; i < to; i++) {
+            Rectangle bounds = STROKE.createStrokedShape(PARTS[i]).getBounds();
+            area = area == null ? bounds : area.union(bounds);
+        }
+        // one extra pixel on each side for rounding at fractional scales
+        area.grow(1, 1);
+        return area;
     }
 
     @Override
@@ -17,29 +70,44 @@ public class HangmanCanvas extends JPanel {
         super.paintComponent(g);
         // class to render 2D shapes, such as my stickman
         Graphics2D g2d = (Graphics2D) g;
-        g2d.setStroke(new BasicStroke(4));
-        g2d.drawLine(50, 350, 200, 350);
-        g2d.drawLine(125, 350, 125, 50);
-        g2d.drawLine(125, 50, 300, 50);
-        g2d.drawLine(300, 50, 300, 100);
-        // everytime the panel is updated these conditional statements will run and draw up to a certain amount of the stickman
-        if (stickmanStage > 0) {
-            g2d.drawOval(275, 100, 50, 50);
-        }
-        if (stickmanStage > 1) {
-            g2d.drawLine(300, 150, 300, 250);
-        }
-        if (stickmanStage > 2) {
-            g2d.drawLine(300, 170, 250, 200);
-        }
-        if (stickmanStage > 3) {
-            g2d.drawLine(300, 170, 350, 200);
-        }
-        if (stickmanStage > 4) {
-            g2d.drawLine(300, 250, 250, 300);
+        // on a high DPI screen the graphics are scaled, and the image is rendered at that scale so it stays sharp
+        double scale = g2d.getTransform().getScaleX();
+        // the clip set by repaint(area) means only the changed part of the image is copied to the screen
+        g2d.drawImage(stageImage(scale), 0, 0, DRAWING_WIDTH, DRAWING_HEIGHT, null);
+    }
+
+    /**
+     * @return the drawing for the current stage, rendering it if it is not cached for this screen yet
+     */
+    private BufferedImage stageImage(double scale) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (stages == null || gc != renderedFor || scale != renderedScale || !getForeground().equals(renderedColor)) {
+            stages = new BufferedImage[PARTS.length + 1];
+            renderedFor = gc;
+            renderedScale = scale;
+            renderedColor = getForeground();
         }
-        if (stickmanStage > 5) {
-            g2d.drawLine(300, 250, 350, 300);
+        BufferedImage image = stages[stickmanStage];
+        if (image == null) {
+            int width = (int) Math.ceil(DRAWING_WIDTH * scale);
+            int height = (int) Math.ceil(DRAWING_HEIGHT * scale);
+            // a compatible image has the screen's pixel layout, so drawing it is a plain copy
+            image = gc != null ? gc.createCompatibleImage(width, height, Transparency.TRANSLUCENT)
+                    : new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g2d = image.createGraphics();
+            g2d.scale(scale, scale);
+            g2d.setColor(renderedColor);
+            g2d.setStroke(STROKE);
+            for (Shape line : GALLOWS) {
+                g2d.draw(line);
+            }
+            // draws up to a certain amount of the stickman
+            for (int i = 0; i < stickmanStage; i++) {
+                g2d.draw(PARTS[i]);
+            }
+            g2d.dispose();
+            stages[stickmanStage] = image;
         }
+        return image;
     }
 }
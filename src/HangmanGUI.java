@@ -55,6 +55,12 @@ public class HangmanGUI extends JFrame {
     // tracks the difficulty of the current game round
     private String currentDifficulty;
 
+    // covers the window while the controller works in the background, taking the clicks and key presses so
+    // nothing is started twice, while the window still repaints
+    private JPanel busyPane = new JPanel(new GridBagLayout());
+    // the component that had the focus before the window became busy, given it back afterwards
+    private Component focusBeforeBusy;
+
     /**
      * constructor to set up the JFrame and initialize all other panels
      */
@@ -83,6 +89,47 @@ public class HangmanGUI extends JFrame {
 
         // Show the login screen first
         cards.show(mainPanel, "LOGIN");
+
+        initBusyPane();
+    }
+
+    /**
+     * initializes the glass pane shown while the window is busy
+     */
+    private void initBusyPane() {
+        // transparent so the screen underneath stays visible, only the label is drawn
+        busyPane.setOpaque(false);
+        busyPane.add(new JLabel("Working..."));
+        busyPane.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        // empty listeners still consume the events, so they never reach the components underneath
+        busyPane.addMouseListener(new MouseAdapter() {
+        });
+        busyPane.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                e.consume();
+            }
+        });
+        busyPane.setFocusable(true);
+        setGlassPane(busyPane);
+    }
+
+    /**
+     * shows or hides the busy state, called by the controller while it waits for the engine
+     */
+    public void setBusy(boolean busy) {
+        if (busy) {
+            focusBeforeBusy = getFocusOwner();
+            busyPane.setVisible(true);
+            // takes the keyboard focus so typing and enter cannot reach the fields and buttons underneath
+            busyPane.requestFocusInWindow();
+        } else {
+            busyPane.setVisible(false);
+            if (focusBeforeBusy != null) {
+                focusBeforeBusy.requestFocusInWindow();
+                focusBeforeBusy = null;
+            }
+        }
     }
 
     /**
@@ -266,12 +313,12 @@ public class HangmanGUI extends JFrame {
     /**
      * update masked word and lives after each guess
      */
-    public void updateGameView(GameSession s) {
-        wordLabel.setText("Word: " + s.getObfuscatedWord());
-        livesLabel.setText("Lives: " + s.getRemainingGuesses());
+    public void updateGameView(GameEngine.GameView g) {
+        wordLabel.setText("Word: " + g.obfuscatedWord());
+        livesLabel.setText("Lives: " + g.remainingGuesses());
         // make a whitespace separated list of guessed letters
         StringBuilder sb = new StringBuilder();
-        for (char c : s.getGuessedChars()) {
+        for (char c : g.guessed().toCharArray()) {
             sb.append(c).append(' ');
         }
         String letters = sb.toString().trim();
@@ -284,10 +331,9 @@ public class HangmanGUI extends JFrame {
      * advance the stickman drawing based on number of wrong guesses
      */
     public void drawNextHangmanPart(int wrong) {
-        // sets the stage of the Hangman in the canvas instance according to how many wrong guesses have been made
+        // sets the stage of the Hangman in the canvas instance according to how many wrong guesses have been made,
+        // which repaints only the area of the new body part
         canvas.setStage(wrong);
-        // called to update the canvas
-        canvas.repaint();
     }
 
     /**
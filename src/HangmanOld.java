@@ -16,7 +16,7 @@ Hence saving all players, each with a reference to their accounts is sufficient.
 //
 public class HangmanOld {
     // class variables
-    private static ArrayList<Player> players = new ArrayList<>(); // any method in this class can access this list of players
+    private static GameEngine engine; // any method in this class can look up and change players through the engine
     private static final Scanner scanner = new Scanner(System.in); // any method in this class can access this scanner
     private static final int MAX_LOGIN_ATTEMPTS = 3;
     private static final int maxUsernameLength = 16;
@@ -130,7 +130,8 @@ public class HangmanOld {
     }
 
     private static void initializePlayers() {
-        players = DataStore.loadPlayers();
+        // players are read from the store one at a time as they are looked up
+        engine = new GameEngine();
         /*
         Or hard-code players and their accounts here for the first run
         */
@@ -144,8 +145,6 @@ public class HangmanOld {
         // Account jeromeAcc = new MasterAccount(jerome, "5566985383536395");
         // players.add(jerome);
         // jerome.addAccount(jeromeAcc);
-
-        DataStore.savePlayers(players);
     }
 
     /**
@@ -180,13 +179,14 @@ public class HangmanOld {
         System.out.print("Please enter your desired account password: ");
         String newPassword = scanner.nextLine().trim();
 
-        Player newPlayer = new Player(newUsername, newPassword);
-
-        players.add(newPlayer);
-
-        DataStore.savePlayers(players);
+        // the loop above checked the username, the engine still refuses it if it was taken since
+        GameEngine.LoginResult result = engine.signup(newUsername, newPassword);
+        if (!result.success()) {
+            System.out.println(result.message());
+            return null;
+        }
 
-        return newPlayer;
+        return result.player();
     }
 
     /**
@@ -268,32 +268,23 @@ public class HangmanOld {
     }
 
     /**
-     * find player in ArrayList using username
+     * find player in the registry using username
      * @return Player which was matched
      */
     private static Player findPlayer(String username) {
-        for (Player p : players) {
-            if (p.getUsername().equals(username)) {
-                return p;
-            }
+        Player p = engine.findPlayer(username);
+        if (p == null) {
+            System.out.println("The provided player was not found.");
         }
-
-        System.out.println("The provided player was not found.");
-        return null;
+        return p;
     }
 
     /**
-     * checks if a player exists in the ArrayList
+     * checks if a player exists in the registry
      * @return boolean if the player exists or not
      */
     private static boolean doesPlayerExist(String username) {
-        for (Player p : players) {
-            if (p.getUsername().equals(username)) {
-                return true;
-            }
-        }
-
-        return false;
+        return engine.findPlayer(username) != null;
     }
 
     private static void changeOption(int changeChoice, Player currentPlayer) {
@@ -315,8 +306,11 @@ public class HangmanOld {
                     break;
                 }
 
-                currentPlayer.setUsername(newUsername);
-                DataStore.savePlayers(players);
+                // fails if the name was taken in the meantime
+                if (!engine.renamePlayer(currentPlayer, newUsername)) {
+                    System.out.println("Another user profile already exists with that username.");
+                    break;
+                }
                 System.out.println("Your username  successfully changed!");
             }
             case 2 -> {
@@ -336,8 +330,7 @@ public class HangmanOld {
                     break;
                 }
 
-                currentPlayer.setPassword(newPassword);
-                DataStore.savePlayers(players);
+                engine.changePassword(currentPlayer, newPassword);
                 System.out.println("Your password has been successfully changed!");
             }
         }
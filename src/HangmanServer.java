@@ -0,0 +1,328 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * JSON over HTTP front end for the GameEngine, offering the same operations as the Hangman controller
+ * @note every request runs on its own virtual thread, so thousands of connected players do not need thousands
+ * of platform threads. The server only listens on the loopback address. A token not used for
+ * hangman.tokenIdleMinutes (30) is forgotten, as are the least recently used ones beyond hangman.maxTokens (100000)
+ *
+ * POST /login          {"username", "password"}             -> {"status", "token", "username"}
+ * POST /logout         {"token"}                            -> {"username"}
+ * POST /startNewGame   {"token", "difficulty"}              -> game, abandoning the token's unfinished game
+ * POST /handleGuess    {"token", "sessionId", "letter"}     -> {"outcome", "correct", "score", "game"}
+ * GET  /getHighScore?token=...&difficulty=...               -> {"difficulty", "highScore"}
+ * GET  /getHistory?token=...                                -> {"history": [...]}
+ * GET  /getLeaderboard?token=...&difficulty=...&k=10        -> {"difficulty", "rank", "top": [entry...]}
+ * where difficulty may also be overall, entry is {"username", "score", "rank"} and rank is the player's own
+ * entry, or null if they have no score there
+ * where game is {"sessionId", "difficulty", "word", "wrongGuesses", "remainingGuesses", "guessed", "state", "targetWord"}
+ * and failures return {"error"} with a 4xx status
+ */
+public class HangmanServer {
+    private final GameEngine engine;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // logged in players by the token handed out at login
+    private final SessionStore<Login> logins;
+
+    // one token's player and the game it last started, which is abandoned when it starts another or logs out
+    private record Login(Player player, AtomicReference<String> game) {}
+
+    // a request that cannot be served, turned into an error response with this status
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * @param port port on the loopback address, 0 picks a free one, see getPort
+     */
+    public HangmanServer(GameEngine engine, int port) throws IOException {
+        this.engine = engine;
+        Duration idle = Duration.ofMinutes(Long.getLong("hangman.tokenIdleMinutes", 30));
+        // a forgotten token's game is left to expire in the engine like any other idle game
+        logins = new SessionStore<>(idle, Integer.getInteger("hangman.maxTokens", 100_000), (token, login, cause) -> {
+        });
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/login", handler("POST", this::login));
+        server.createContext("/logout", handler("POST", this::logout));
+        server.createContext("/startNewGame", handler("POST", this::startNewGame));
+        server.createContext("/handleGuess", handler("POST", this::handleGuess));
+        server.createContext("/getHighScore", handler("GET", this::getHighScore));
+        server.createContext("/getHistory", handler("GET", this::getHistory));
+        server.createContext("/getLeaderboard", handler("GET", this::getLeaderboard));
+    }
+
+    /**
+     * starts the server on the port given as the first argument, 8080 if there is none
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        HangmanServer server = new HangmanServer(new GameEngine(), port);
+        server.start();
+        System.out.println("Hangman server listening on http://localhost:" + server.getPort() + "/");
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * stops accepting requests, waiting up to a second for running ones to finish
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // one endpoint: takes the request fields and returns the JSON response body
+    private interface Endpoint {
+        String handle(Map<String, String> fields) throws IOException;
+    }
+
+    /**
+     * wraps an endpoint with method checking, field parsing and error handling
+     */
+    private HttpHandler handler(String method, Endpoint endpoint) {
+        return exchange -> {
+            int status = 200;
+            String body;
+            try {
+                if (!exchange.getRequestMethod().equals(method)) {
+                    throw new ApiException(405, "Use " + method + " for " + exchange.getRequestURI().getPath() + ".");
+                }
+                Map<String, String> fields = method.equals("GET") ? queryFields(exchange) : bodyFields(exchange);
+                body = endpoint.handle(fields);
+            } catch (ApiException e) {
+                status = e.status;
+                body = Json.object().put("error", e.getMessage()).toString();
+            } catch (IllegalArgumentException e) {
+                status = 400;
+                body = Json.object().put("error", e.getMessage()).toString();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                status = 500;
+                body = Json.object().put("error", "Internal error.").toString();
+            }
+            send(exchange, status, body);
+        };
+    }
+
+    private String login(Map<String, String> fields) {
+        GameEngine.LoginResult result = engine.login(required(fields, "username"), required(fields, "password"));
+        if (!result.success()) {
+            int status = result.status() == GameEngine.LoginStatus.UNAVAILABLE ? 503 : 401;
+            throw new ApiException(status, result.message());
+        }
+        String token = UUID.randomUUID().toString();
+        logins.put(token, new Login(result.player(), new AtomicReference<>()));
+        return Json.object()
+                .put("status", result.status().name())
+                .put("token", token)
+                .put("username", result.player().getUsername())
+                .toString();
+    }
+
+    private String logout(Map<String, String> fields) {
+        Login login = logins.remove(required(fields, "token"));
+        if (login == null) {
+            throw new ApiException(401, "Unknown token, log in first.");
+        }
+        engine.abandonGame(login.game().getAndSet(null));
+        return Json.object().put("username", login.player().getUsername()).toString();
+    }
+
+    private String startNewGame(Map<String, String> fields) {
+        Login login = loggedIn(fields);
+        String difficulty = required(fields, "difficulty");
+        GameEngine.GameView game;
+        try {
+            game = engine.startGame(login.player(), difficulty);
+        } catch (IOException e) {
+            throw new ApiException(400, "Failed to load words for difficulty: " + difficulty);
+        }
+        // like the Hangman controller, starting a game gives up the one before it, a finished one is already gone
+        engine.abandonGame(login.game().getAndSet(game.sessionId()));
+        return gameJson(game);
+    }
+
+    private String handleGuess(Map<String, String> fields) {
+        Player player = player(fields);
+        String sessionId = required(fields, "sessionId");
+        String letter = required(fields, "letter");
+        if (letter.length() != 1) {
+            throw new ApiException(400, "Guess exactly one letter.");
+        }
+        GameEngine.GameView game = game(sessionId);
+        // a token may only play the games of the player it belongs to
+        if (!game.username().equals(player.getUsername())) {
+            throw new ApiException(403, "This game belongs to another player.");
+        }
+        GameEngine.GuessResult result;
+        try {
+            result = engine.guess(sessionId, letter.charAt(0));
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(404, e.getMessage());
+        }
+        return Json.object()
+                .put("outcome", result.outcome().name())
+                .put("correct", result.correct())
+                .put("score", result.score())
+                .putRaw("game", gameJson(result.view()))
+                .toString();
+    }
+
+    private String getHighScore(Map<String, String> fields) {
+        Player player = player(fields);
+        String difficulty = required(fields, "difficulty");
+        return Json.object()
+                .put("difficulty", difficulty)
+                .put("highScore", player.getHighScore(difficulty))
+                .toString();
+    }
+
+    private String getHistory(Map<String, String> fields) {
+        List<Integer> history = player(fields).getScoreHistory();
+        StringBuilder array = new StringBuilder("[");
+        for (int i = 0; i < history.size(); i++) {
+            if (i > 0) {
+                array.append(',');
+            }
+            array.append(history.get(i));
+        }
+        return Json.object().putRaw("history", array.append(']').toString()).toString();
+    }
+
+    private String getLeaderboard(Map<String, String> fields) {
+        Player player = player(fields);
+        String difficulty = required(fields, "difficulty");
+        int k;
+        try {
+            k = Integer.parseInt(fields.getOrDefault("k", "10"));
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "k must be a number.");
+        }
+        if (k < 1 || k > 1000) {
+            throw new ApiException(400, "k must be between 1 and 1000.");
+        }
+        Leaderboard leaderboard = engine.getLeaderboard();
+        StringBuilder top = new StringBuilder("[");
+        for (Leaderboard.Entry e : leaderboard.top(difficulty, k)) {
+            if (top.length() > 1) {
+                top.append(',');
+            }
+            top.append(entryJson(e));
+        }
+        Leaderboard.Entry own = leaderboard.rank(difficulty, player.getUsername());
+        return Json.object()
+                .put("difficulty", difficulty)
+                .putRaw("rank", own == null ? "null" : entryJson(own))
+                .putRaw("top", top.append(']').toString())
+                .toString();
+    }
+
+    private static String entryJson(Leaderboard.Entry e) {
+        return Json.object().put("username", e.username()).put("score", e.score()).put("rank", e.rank()).toString();
+    }
+
+    private static String gameJson(GameEngine.GameView game) {
+        return Json.object()
+                .put("sessionId", game.sessionId())
+                .put("difficulty", game.difficulty())
+                .put("word", game.obfuscatedWord())
+                .put("wrongGuesses", game.wrongGuesses())
+                .put("remainingGuesses", game.remainingGuesses())
+                .put("guessed", game.guessed())
+                .put("state", game.state())
+                .put("targetWord", game.targetWord())
+                .toString();
+    }
+
+    private GameEngine.GameView game(String sessionId) {
+        try {
+            return engine.state(sessionId);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(404, e.getMessage());
+        }
+    }
+
+    private Player player(Map<String, String> fields) {
+        return loggedIn(fields).player();
+    }
+
+    private Login loggedIn(Map<String, String> fields) {
+        Login login = logins.get(required(fields, "token"));
+        if (login == null) {
+            throw new ApiException(401, "Unknown token, log in first.");
+        }
+        return login;
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null) {
+            throw new ApiException(400, "Missing field '" + name + "'.");
+        }
+        return value;
+    }
+
+    private static Map<String, String> bodyFields(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return text.isBlank() ? new HashMap<>() : Json.parse(text);
+        }
+    }
+
+    private static Map<String, String> queryFields(HttpExchange exchange) {
+        Map<String, String> fields = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return fields;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                fields.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return fields;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
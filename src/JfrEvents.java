@@ -0,0 +1,139 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder events for games, logins, player data and word lists, so a recording shows them next to the JVM's
+ * own GC and I/O events
+ * @note only emitted with -Dhangman.jfr=true, e.g. together with -XX:StartFlightRecording=filename=hangman.jfr.
+ * Callers check ENABLED before creating an event, and since it is a static final the JIT drops that code when
+ * the flag is off. With the flag on, an event nobody is recording is created but never filled in or committed
+ */
+public final class JfrEvents {
+    public static final boolean ENABLED = Boolean.getBoolean("hangman.jfr");
+
+    private JfrEvents() {
+    }
+
+    /**
+     * starts timing an event, for events whose duration matters
+     */
+    public static <E extends Event> E begin(E event) {
+        event.begin();
+        return event;
+    }
+
+    @Name("hangman.Login")
+    @Label("Login")
+    @Category({"Hangman", "Players"})
+    public static final class Login extends Event {
+        @Label("Username")
+        public String username;
+        @Label("Status")
+        @Description("How the login ended, see GameEngine.LoginStatus")
+        public String status;
+    }
+
+    @Name("hangman.GameStart")
+    @Label("Game Start")
+    @Category({"Hangman", "Game"})
+    public static final class GameStart extends Event {
+        @Label("Session Id")
+        public String sessionId;
+        @Label("Username")
+        public String username;
+        @Label("Difficulty")
+        public String difficulty;
+        @Label("Word Length")
+        public int wordLength;
+    }
+
+    @Name("hangman.Guess")
+    @Label("Guess")
+    @Category({"Hangman", "Game"})
+    public static final class Guess extends Event {
+        @Label("Session Id")
+        public String sessionId;
+        @Label("Letter")
+        public char letter;
+        @Label("Correct")
+        public boolean correct;
+        @Label("Wrong Guesses")
+        @Description("Wrong guesses in the game so far, including this one")
+        public int wrongGuesses;
+    }
+
+    @Name("hangman.GameEnd")
+    @Label("Game End")
+    @Category({"Hangman", "Game"})
+    public static final class GameEnd extends Event {
+        @Label("Session Id")
+        public String sessionId;
+        @Label("Username")
+        public String username;
+        @Label("Difficulty")
+        public String difficulty;
+        @Label("Outcome")
+        @Description("won, lost, dropped when left idle or evicted, or abandoned by the player")
+        public String outcome;
+        @Label("Score")
+        public int score;
+        @Label("Wrong Guesses")
+        public int wrongGuesses;
+    }
+
+    @Name("hangman.PlayerLoad")
+    @Label("Player Load")
+    @Category({"Hangman", "Persistence"})
+    public static final class PlayerLoad extends Event {
+        @Label("Username")
+        @Description("The player asked for, empty when every player was loaded")
+        public String username;
+        @Label("Players")
+        @Description("Players found")
+        public int players;
+    }
+
+    @Name("hangman.JournalWrite")
+    @Label("Journal Write")
+    @Category({"Hangman", "Persistence"})
+    public static final class JournalWrite extends Event {
+        @Label("Records")
+        public int records;
+        @Label("Bytes Written")
+        @DataAmount
+        public long bytes;
+        @Label("Forced")
+        @Description("Whether the journal was forced to disk after the write")
+        public boolean forced;
+    }
+
+    @Name("hangman.Checkpoint")
+    @Label("Checkpoint")
+    @Category({"Hangman", "Persistence"})
+    public static final class Checkpoint extends Event {
+        @Label("Players Written")
+        public int players;
+        @Label("Bytes Written")
+        @DataAmount
+        public long bytes;
+        @Label("Usernames Removed")
+        public int removed;
+    }
+
+    @Name("hangman.WordBankLoad")
+    @Label("Word Bank Load")
+    @Category({"Hangman", "Words"})
+    public static final class WordBankLoad extends Event {
+        @Label("Difficulty")
+        public String difficulty;
+        @Label("Words")
+        public int words;
+        @Label("Compact")
+        @Description("Whether the words came from a .dawg corpus instead of the text list")
+        public boolean compact;
+    }
+}
@@ -0,0 +1,198 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Just enough JSON for the HTTP API: flat objects of strings, numbers and booleans
+ * @note nested objects and arrays are written with raw values but never parsed, requests only ever need flat fields
+ */
+public final class Json {
+    private final StringBuilder sb = new StringBuilder("{");
+
+    private Json() {
+    }
+
+    // starts a new object, finish it with toString()
+    public static Json object() {
+        return new Json();
+    }
+
+    public Json put(String key, String value) {
+        key(key);
+        if (value == null) {
+            sb.append("null");
+        } else {
+            quote(sb, value);
+        }
+        return this;
+    }
+
+    public Json put(String key, long value) {
+        key(key);
+        sb.append(value);
+        return this;
+    }
+
+    public Json put(String key, boolean value) {
+        key(key);
+        sb.append(value);
+        return this;
+    }
+
+    /**
+     * adds a value that is already JSON, e.g. a nested object or an array
+     */
+    public Json putRaw(String key, String json) {
+        key(key);
+        sb.append(json);
+        return this;
+    }
+
+    private void key(String key) {
+        if (sb.length() > 1) {
+            sb.append(',');
+        }
+        quote(sb, key);
+        sb.append(':');
+    }
+
+    @Override
+    public String toString() {
+        return sb + "}";
+    }
+
+    private static void quote(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * parses a flat JSON object into its fields, numbers and booleans are returned as their text
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+    public static Map<String, String> parse(String text) {
+        Map<String, String> fields = new HashMap<>();
+        Parser p = new Parser(text);
+        p.skipSpace();
+        p.expect('{');
+        p.skipSpace();
+        if (p.peek() == '}') {
+            p.pos++;
+        } else {
+            while (true) {
+                p.skipSpace();
+                String key = p.string();
+                p.skipSpace();
+                p.expect(':');
+                p.skipSpace();
+                fields.put(key, p.value());
+                p.skipSpace();
+                if (p.peek() == ',') {
+                    p.pos++;
+                    continue;
+                }
+                p.expect('}');
+                break;
+            }
+        }
+        p.skipSpace();
+        if (p.pos != text.length()) {
+            throw new IllegalArgumentException("Unexpected text after JSON object.");
+        }
+        return fields;
+    }
+
+    // reads through the text one character at a time
+    private static final class Parser {
+        private final String text;
+        private int pos = 0;
+
+        Parser(String text) {
+            this.text = text;
+        }
+
+        char peek() {
+            if (pos >= text.length()) {
+                throw new IllegalArgumentException("JSON ended too early.");
+            }
+            return text.charAt(pos);
+        }
+
+        void expect(char c) {
+            if (peek() != c) {
+                throw new IllegalArgumentException("Expected '" + c + "' at position " + pos + ".");
+            }
+            pos++;
+        }
+
+        void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        String value() {
+            if (peek() == '"') {
+                return string();
+            }
+            int start = pos;
+            while (pos < text.length() && ",}] \t\r\n".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.isEmpty() || literal.startsWith("{") || literal.startsWith("[")) {
+                throw new IllegalArgumentException("Only flat JSON objects are accepted.");
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                char c = peek();
+                pos++;
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                char e = peek();
+                pos++;
+                switch (e) {
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > text.length()) {
+                            throw new IllegalArgumentException("Bad unicode escape.");
+                        }
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    }
+                    default -> sb.append(e);
+                }
+            }
+        }
+    }
+}
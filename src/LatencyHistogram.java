@@ -0,0 +1,103 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size histogram of latencies in nanoseconds, in the style of HdrHistogram
+ * @note values are counted in log-linear buckets: each power of two is split into 128 equal sub-buckets, so a
+ * percentile is never off by more than 1/128 (under 1%) of its value, whatever the range. Recording is a couple
+ * of shifts and one atomic increment, so any number of threads can record into the same histogram
+ */
+public class LatencyHistogram {
+    // 2^SUB_BITS sub-buckets per power of two
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    // values from 2^MAX_BITS ns (about 18 minutes) up are counted as the largest value
+    private static final int MAX_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(index(MAX_VALUE) + 1);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos latency of one operation, negative values are counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(index(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    // values below 2^(SUB_BITS+1) get a bucket each, above that every power of two gets SUB_COUNT buckets
+    private static int index(long value) {
+        int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BITS);
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    // the largest value counted in a bucket
+    private static long highestValue(int index) {
+        int shift = Math.max(0, (index >>> SUB_BITS) - 1);
+        long sub = index - ((long) shift << SUB_BITS);
+        return ((sub + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100, e.g. 99.9
+     * @return the latency that this percentage of the recorded values are at or below, 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = total.get();
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * adds every value recorded in the other histogram to this one
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length(); i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        total.addAndGet(other.total.get());
+        sum.addAndGet(other.sum.get());
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,202 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * High score rankings between players, one board per difficulty and one overall, kept up to date as scores are
+ * recorded instead of sorting every player for each query
+ * @note each board keeps its players in a concurrent skip list ordered by score, so the top K is the first K
+ * entries, and a Fenwick tree counting players per score, so a player's rank is a prefix sum over the scores above
+ * theirs. Both are O(log n). An update of one player is atomic with respect to other updates of that player, and
+ * a high score only ever goes up, so updates from many sessions and the startup load can arrive in any order
+ * and the board still ends up with each player's highest score exactly once
+ */
+public class Leaderboard {
+    public static final String OVERALL = "overall";
+    // highest score first, ties in username order so the order is total
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt(Entry::score).reversed()
+            .thenComparing(Entry::username);
+
+    /**
+     * one player's place on a board
+     * @param rank 1 for the best score, players with the same score share a rank
+     */
+    public record Entry(String username, int score, int rank) {}
+
+    private final int maxScore;
+    // boards by lower case difficulty, and OVERALL
+    private final Map<String, Board> boards = new ConcurrentHashMap<>();
+    // usernames given up by a rename while load is running, null the rest of the time
+    private volatile Set<String> renamedDuringLoad;
+
+    // one ranking
+    private final class Board {
+        final ConcurrentSkipListSet<Entry> order = new ConcurrentSkipListSet<>(ORDER);
+        // each player's entry in order. An entry in order with no match here is being replaced, or is the higher one
+        // replacing it before compute returns
+        final Map<String, Entry> byUsername = new ConcurrentHashMap<>();
+        // Fenwick tree over players per score, index 1 is maxScore and higher, counting down to 0
+        final AtomicLongArray counts = new AtomicLongArray(maxScore + 2);
+
+        void update(String username, int score) {
+            byUsername.compute(username, (u, old) -> {
+                if (old != null && old.score() >= score) {
+                    return old;
+                }
+                Entry entry = new Entry(u, score, 0);
+                // until compute returns byUsername still points at the old entry, top takes this one anyway because
+                // its score is higher
+                order.add(entry);
+                count(score, 1);
+                if (old != null) {
+                    order.remove(old);
+                    count(old.score(), -1);
+                }
+                return entry;
+            });
+        }
+
+        void remove(String username) {
+            byUsername.computeIfPresent(username, (u, old) -> {
+                order.remove(old);
+                count(old.score(), -1);
+                return null;
+            });
+        }
+
+        void count(int score, int delta) {
+            for (int i = index(score); i < counts.length(); i += i & -i) {
+                counts.addAndGet(i, delta);
+            }
+        }
+
+        // players with a score above this one
+        long above(int score) {
+            long sum = 0;
+            for (int i = index(score) - 1; i > 0; i -= i & -i) {
+                sum += counts.get(i);
+            }
+            return sum;
+        }
+
+        int index(int score) {
+            return maxScore - Math.max(0, Math.min(maxScore, score)) + 1;
+        }
+    }
+
+    /**
+     * @param maxScore the highest score a game can give, higher scores are ranked as equal to it
+     */
+    public Leaderboard(int maxScore) {
+        this.maxScore = maxScore;
+    }
+
+    /**
+     * puts the player's high scores on the boards, called after Player.recordScore
+     * @note a player is only on the boards of difficulties they have a score for, and on the overall board once
+     * they have any
+     */
+    public void update(Player p) {
+        Map<String, Integer> highScores = p.getHighScores();
+        if (highScores.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, Integer> e : highScores.entrySet()) {
+            board(e.getKey()).update(p.getUsername(), e.getValue());
+        }
+        board(OVERALL).update(p.getUsername(), p.getOverallHighScore());
+    }
+
+    /**
+     * adds every player a source passes to it, e.g. DataStore::forEachPlayer when the game starts
+     * @note the source may pass a copy of a player read before they were renamed, which would put the old username
+     * back on the boards, so usernames given up while it runs are removed again once it is done
+     */
+    public void load(Consumer<Consumer<Player>> source) {
+        Set<String> renamed = ConcurrentHashMap.newKeySet();
+        renamedDuringLoad = renamed;
+        try {
+            source.accept(this::update);
+        } finally {
+            renamedDuringLoad = null;
+            renamed.forEach(this::remove);
+        }
+    }
+
+    /**
+     * moves a renamed player's scores to their new username
+     */
+    public void rename(String oldUsername, Player p) {
+        Set<String> renamed = renamedDuringLoad;
+        if (renamed != null) {
+            renamed.add(oldUsername);
+            // renamed back to a name given up earlier, which is theirs again
+            renamed.remove(p.getUsername());
+        }
+        remove(oldUsername);
+        update(p);
+    }
+
+    /**
+     * @param board a difficulty or OVERALL
+     * @return the k best players on the board, best first, each player at most once
+     * @note the result is approximate while scores change: the board is read without stopping updates, so a player
+     * moved up while it runs may be left out if the new entry is passed before it is added and the old one reached
+     * after it is removed, and ranks are counted at slightly different moments
+     */
+    public List<Entry> top(String board, int k) {
+        Board b = boards.get(board.toLowerCase());
+        List<Entry> top = new ArrayList<>(Math.min(k, 64));
+        if (b == null) {
+            return top;
+        }
+        Set<String> listed = new HashSet<>();
+        for (Entry e : b.order) {
+            if (top.size() >= k) {
+                break;
+            }
+            // the entry the player is mapped to, or the higher one replacing it that the map does not point to yet.
+            // That one comes first in order, so the player's other entry is then skipped as already listed
+            Entry mapped = b.byUsername.get(e.username());
+            if (mapped != null && (mapped == e || mapped.score() < e.score()) && listed.add(e.username())) {
+                top.add(new Entry(e.username(), e.score(), (int) b.above(e.score()) + 1));
+            }
+        }
+        return top;
+    }
+
+    /**
+     * @return the player's place on the board, or null if they have no score for it
+     */
+    public Entry rank(String board, String username) {
+        Board b = boards.get(board.toLowerCase());
+        Entry e = b == null ? null : b.byUsername.get(username);
+        return e == null ? null : new Entry(username, e.score(), (int) b.above(e.score()) + 1);
+    }
+
+    /**
+     * @return how many players are on the board
+     */
+    public int size(String board) {
+        Board b = boards.get(board.toLowerCase());
+        return b == null ? 0 : b.byUsername.size();
+    }
+
+    // takes the username off every board
+    private void remove(String username) {
+        for (Board board : boards.values()) {
+            board.remove(username);
+        }
+    }
+
+    private Board board(String name) {
+        return boards.computeIfAbsent(name.toLowerCase(), n -> new Board());
+    }
+}
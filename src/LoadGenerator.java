@@ -0,0 +1,256 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Simulates many players at once to measure how much load the game can take
+ * usage: java LoadGenerator [-players 100] [-duration 30] [-warmup 5] [-http | -url http://localhost:8080]
+ * @note every player is a virtual thread that logs in, then plays a few games at random difficulties, guessing random
+ * letters until each game is won or lost. By default it plays against a GameEngine in this JVM, -http starts a
+ * HangmanServer on a free local port and plays over HTTP, and -url plays against a server that is already running.
+ * Latencies of the warmup seconds are thrown away. "save" is the guess that ends a game, as it also records the score
+ * @note run it in a scratch directory with copies of the word lists, the engine keeps its players in the
+ * working directory and every run signs up new players
+ */
+public class LoadGenerator {
+    private static final List<String> DIFFICULTIES = List.of("Easy", "Medium", "Hard");
+    private static final Pattern STATE = Pattern.compile("\"state\":(-?\\d+)");
+
+    // the operations measured, in the order they are reported
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile boolean measuring = false;
+    private volatile boolean running = true;
+
+    private LoadGenerator() {
+        for (String op : List.of("login", "newGame", "guess", "save")) {
+            latencies.put(op, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * the game as seen by one simulated player, implemented by the engine directly or over HTTP
+     */
+    private interface Client {
+        // logs in and remembers the player, e.g. its token
+        void login(String username, String password) throws IOException;
+
+        // starts a game and returns its session id
+        String startGame(String difficulty) throws IOException;
+
+        // guesses a letter and returns true once the game is over
+        boolean guess(String sessionId, char letter) throws IOException;
+    }
+
+    private static final class EngineClient implements Client {
+        private final GameEngine engine;
+        private Player player;
+
+        EngineClient(GameEngine engine) {
+            this.engine = engine;
+        }
+
+        @Override
+        public void login(String username, String password) throws IOException {
+            GameEngine.LoginResult result = engine.login(username, password);
+            if (!result.success()) {
+                throw new IOException(result.message());
+            }
+            player = result.player();
+        }
+
+        @Override
+        public String startGame(String difficulty) throws IOException {
+            return engine.startGame(player, difficulty).sessionId();
+        }
+
+        @Override
+        public boolean guess(String sessionId, char letter) {
+            return engine.guess(sessionId, letter).view().isOver();
+        }
+    }
+
+    private static final class HttpClientPlayer implements Client {
+        private final HttpClient http;
+        private final String url;
+        private String token;
+
+        HttpClientPlayer(HttpClient http, String url) {
+            this.http = http;
+            this.url = url;
+        }
+
+        @Override
+        public void login(String username, String password) throws IOException {
+            if (token != null) {
+                // gives the old token back, which also abandons its game if one is still running
+                post("/logout", Json.object().put("token", token));
+            }
+            token = post("/login", Json.object().put("username", username).put("password", password)).get("token");
+        }
+
+        @Override
+        public String startGame(String difficulty) throws IOException {
+            return post("/startNewGame", Json.object().put("token", token).put("difficulty", difficulty)).get("sessionId");
+        }
+
+        @Override
+        public boolean guess(String sessionId, char letter) throws IOException {
+            String body = send("/handleGuess", Json.object().put("token", token).put("sessionId", sessionId)
+                    .put("letter", String.valueOf(letter)));
+            // the game is nested in the response, only its state is needed
+            Matcher m = STATE.matcher(body);
+            if (!m.find()) {
+                throw new IOException("No game state in " + body);
+            }
+            return !m.group(1).equals("0");
+        }
+
+        private Map<String, String> post(String path, Json request) throws IOException {
+            return Json.parse(send(path, request));
+        }
+
+        private String send(String path, Json request) throws IOException {
+            HttpRequest r = HttpRequest.newBuilder(URI.create(url + path))
+                    .POST(HttpRequest.BodyPublishers.ofString(request.toString()))
+                    .build();
+            try {
+                HttpResponse<String> response = http.send(r, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    throw new IOException(path + " returned " + response.statusCode() + ": " + response.body());
+                }
+                return response.body();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int players = 100;
+        int duration = 30;
+        int warmup = 5;
+        String url = null;
+        boolean http = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-players" -> players = Integer.parseInt(args[++i]);
+                case "-duration" -> duration = Integer.parseInt(args[++i]);
+                case "-warmup" -> warmup = Integer.parseInt(args[++i]);
+                case "-http" -> http = true;
+                case "-url" -> url = args[++i];
+                default -> {
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+
+        GameEngine engine = url == null ? new GameEngine() : null;
+        HangmanServer server = null;
+        if (http && url == null) {
+            server = new HangmanServer(engine, 0);
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+        HttpClient httpClient = url == null ? null : HttpClient.newHttpClient();
+        String target = url;
+
+        LoadGenerator load = new LoadGenerator();
+        // a different name prefix each run, so the players are new and every first login is a signup
+        // short enough that the names stay within Player.MAX_USERNAME_LENGTH
+        String prefix = "ld" + Long.toString(System.currentTimeMillis(), 36) + "-";
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            Client client = target == null ? new EngineClient(engine) : new HttpClientPlayer(httpClient, target);
+            String username = prefix + i;
+            threads.add(Thread.ofVirtual().name(username).start(() -> load.play(client, username)));
+        }
+        System.out.printf("%d players against %s, %ds warmup, %ds measured%n", players,
+                target == null ? "the engine in process" : target, warmup, duration);
+        Thread.sleep(warmup * 1000L);
+        load.measuring = true;
+        long start = System.nanoTime();
+        Thread.sleep(duration * 1000L);
+        load.measuring = false;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        load.running = false;
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (server != null) {
+            server.stop();
+        }
+        DataStore.flush();
+        load.report(seconds);
+    }
+
+    // one simulated player, playing games until the run is over
+    private void play(Client client, String username) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            int gamesLeft = 0;
+            while (running) {
+                long t;
+                if (gamesLeft-- == 0) {
+                    // logs in again every few games, like a player coming back later
+                    t = System.nanoTime();
+                    client.login(username, "password");
+                    record("login", t);
+                    gamesLeft = random.nextInt(10);
+                }
+                t = System.nanoTime();
+                String sessionId = client.startGame(DIFFICULTIES.get(random.nextInt(DIFFICULTIES.size())));
+                record("newGame", t);
+                // guesses the letters in a random order until the game is over
+                char[] letters = "ABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
+                for (int i = letters.length - 1; i >= 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    char c = letters[j];
+                    letters[j] = letters[i];
+                    t = System.nanoTime();
+                    boolean over = client.guess(sessionId, c);
+                    record(over ? "save" : "guess", t);
+                    if (over) {
+                        break;
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // the player stops, the run carries on with the others
+            errors.incrementAndGet();
+            e.printStackTrace();
+        }
+    }
+
+    private void record(String op, long start) {
+        if (measuring) {
+            latencies.get(op).record(System.nanoTime() - start);
+        }
+    }
+
+    private void report(double seconds) {
+        System.out.printf("%n%-8s %10s %10s %10s %10s %10s %10s%n", "op", "ops/s", "mean us", "p50 us", "p99 us",
+                "p999 us", "max us");
+        for (Map.Entry<String, LatencyHistogram> e : latencies.entrySet()) {
+            LatencyHistogram h = e.getValue();
+            System.out.printf("%-8s %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n", e.getKey(), h.getCount() / seconds,
+                    h.getMean() / 1e3, h.getValueAtPercentile(50) / 1e3, h.getValueAtPercentile(99) / 1e3,
+                    h.getValueAtPercentile(99.9) / 1e3, h.getMax() / 1e3);
+        }
+        if (errors.get() > 0) {
+            System.out.println(errors.get() + " players stopped after an error, see above");
+        }
+    }
+}
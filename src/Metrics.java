@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters and latency histograms kept in process, by name, to see where time goes while the game is running
+ * @note counters are LongAdders, so threads counting the same thing add to their own cell instead of fighting over
+ * one value, and latencies go into LatencyHistograms. Hot paths look their metric up once into a static field, so
+ * recording is a nanoTime call and a few atomic adds with no map lookup.
+ * Shown over JMX as hangman:type=Metrics, and written to a file by dump, from JMX or on exit when hangman.metricsFile
+ * is set
+ */
+public final class Metrics {
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final Map<String, LatencyHistogram> TIMERS = new ConcurrentHashMap<>();
+
+    /**
+     * a histogram summed up for JMX, times in microseconds
+     */
+    public record Latency(long count, double mean, long p50, long p99, long p999, long max) {}
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName("hangman:type=Metrics"));
+        } catch (JMException e) {
+            // the metrics are still recorded and can be dumped, they are just not visible over JMX
+            e.printStackTrace();
+        }
+        String file = System.getProperty("hangman.metricsFile");
+        if (file != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    dump(Path.of(file));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }, "hangman-metrics-dump"));
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * @return the counter with this name, created at zero on first use
+     */
+    public static LongAdder counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    public static void increment(String name) {
+        counter(name).increment();
+    }
+
+    /**
+     * @return the latency histogram with this name, created empty on first use
+     */
+    public static LatencyHistogram timer(String name) {
+        return TIMERS.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    /**
+     * records the time from start until now
+     * @param start a System.nanoTime() taken when the timed work began
+     */
+    public static void recordSince(LatencyHistogram timer, long start) {
+        timer.record(System.nanoTime() - start);
+    }
+
+    /**
+     * @return every metric as text, one per line sorted by name, times in microseconds
+     */
+    public static String report() {
+        List<String> lines = new ArrayList<>();
+        lines.add("# hangman metrics at " + Instant.now());
+        for (Map.Entry<String, Long> e : counters().entrySet()) {
+            lines.add(String.format(Locale.ROOT, "%-32s %12d", e.getKey(), e.getValue()));
+        }
+        lines.add(String.format(Locale.ROOT, "%n%-32s %12s %10s %10s %10s %10s %10s", "latency", "count", "mean us",
+                "p50 us", "p99 us", "p999 us", "max us"));
+        for (Map.Entry<String, Latency> e : latencies().entrySet()) {
+            Latency l = e.getValue();
+            lines.add(String.format(Locale.ROOT, "%-32s %12d %10.1f %10d %10d %10d %10d", e.getKey(), l.count(),
+                    l.mean(), l.p50(), l.p99(), l.p999(), l.max()));
+        }
+        return String.join(System.lineSeparator(), lines) + System.lineSeparator();
+    }
+
+    /**
+     * writes the report to a file, replacing it if it exists
+     */
+    public static void dump(Path file) throws IOException {
+        Files.writeString(file, report());
+    }
+
+    public static void reset() {
+        COUNTERS.values().forEach(LongAdder::reset);
+        TIMERS.values().forEach(LatencyHistogram::reset);
+    }
+
+    private static Map<String, Long> counters() {
+        Map<String, Long> values = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    private static Map<String, Latency> latencies() {
+        Map<String, Latency> values = new TreeMap<>();
+        TIMERS.forEach((name, h) -> values.put(name, new Latency(h.getCount(), h.getMean() / 1000,
+                micros(h.getValueAtPercentile(50)), micros(h.getValueAtPercentile(99)),
+                micros(h.getValueAtPercentile(99.9)), micros(h.getMax()))));
+        return values;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    // the JMX view, everything is read fresh on each call
+    private static final class Bean implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getCounters() {
+            return counters();
+        }
+
+        @Override
+        public Map<String, Latency> getLatencies() {
+            return latencies();
+        }
+
+        @Override
+        public void dump(String file) throws IOException {
+            Metrics.dump(Path.of(file));
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * What Metrics shows over JMX, registered as hangman:type=Metrics, e.g. for jconsole or VisualVM
+ */
+public interface MetricsMXBean {
+    /**
+     * @return every counter by name
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * @return a summary of every latency histogram by name
+     */
+    Map<String, Metrics.Latency> getLatencies();
+
+    /**
+     * writes every metric to a text file on the machine running the game
+     * @param file path of the file, relative to the game's working directory
+     */
+    void dump(String file) throws IOException;
+
+    /**
+     * starts every counter and histogram again from zero, e.g. before a load test
+     */
+    void reset();
+}
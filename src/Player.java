@@ -2,13 +2,15 @@ import java.io.Serial;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 public class Player implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L; // to identify the class even if fields/methods change
+    // longest username and password accepted for a new player, as in HangmanOld
+    public static final int MAX_USERNAME_LENGTH = 16;
+    public static final int MAX_PASSWORD_LENGTH = 64;
 
     // instance variables
     private String username;
@@ -34,10 +36,35 @@ public class Player implements Serializable {
         if (password == null || password.isBlank()) {
             throw new IllegalArgumentException("A password is required,");
         }
+        checkLengths(username, password);
         this.username = username;
         this.password = password;
     }
 
+    /**
+     * rebuilds a saved player exactly as it was stored, without validation or replaying recordScore
+     * @note used by PlayerStore when decoding a record
+     */
+    static Player restore(String username, String password, int overallHighScore,
+                          Map<String, Integer> highScores, List<Integer> scoreHistory) {
+        Player p = new Player();
+        p.username = username;
+        p.password = password;
+        p.overallHighScore = overallHighScore;
+        p.highScoreMap.putAll(highScores);
+        p.scoreHistory.addAll(scoreHistory);
+        return p;
+    }
+
+    private static void checkLengths(String username, String password) {
+        if (username.length() > MAX_USERNAME_LENGTH) {
+            throw new IllegalArgumentException("Usernames can be at most " + MAX_USERNAME_LENGTH + " characters.");
+        }
+        if (password.length() > MAX_PASSWORD_LENGTH) {
+            throw new IllegalArgumentException("Passwords can be at most " + MAX_PASSWORD_LENGTH + " characters.");
+        }
+    }
+
     // mutators and accessors
     // all validation done in main class
 
@@ -50,6 +77,9 @@ public class Player implements Serializable {
         if (newUsername == null || newUsername.isBlank()) {
             throw new IllegalArgumentException("New username cannot be blank.");
         }
+        if (newUsername.length() > MAX_USERNAME_LENGTH) {
+            throw new IllegalArgumentException("Usernames can be at most " + MAX_USERNAME_LENGTH + " characters.");
+        }
         this.username = newUsername;
     }
 
@@ -62,6 +92,9 @@ public class Player implements Serializable {
         if (newPassword == null || newPassword.isBlank()) {
             throw new IllegalArgumentException("New password cannot be blank.");
         }
+        if (newPassword.length() > MAX_PASSWORD_LENGTH) {
+            throw new IllegalArgumentException("Passwords can be at most " + MAX_PASSWORD_LENGTH + " characters.");
+        }
         this.password = newPassword;
     }
 
@@ -81,7 +114,8 @@ public class Player implements Serializable {
         return obfuscatedPassword;
     }
 
-    public void recordScore(String difficulty, int score) {
+    // synchronized because one player may finish games on several threads at once
+    public synchronized void recordScore(String difficulty, int score) {
         // Add raw score to history
         this.scoreHistory.add(score);
         // Update high score for the difficulty specified by taking the maximum value
@@ -91,18 +125,23 @@ public class Player implements Serializable {
     }
 
     // returns the value of the entry in the HashMap corresponding to the key, and if it does not exist returns the default value
-    public int getHighScore(String difficulty) {
+    public synchronized int getHighScore(String difficulty) {
         return this.highScoreMap.getOrDefault(difficulty, 0);
     }
 
-    // currently unused, to be used in leaderboard implementation
-    public int getOverallHighScore() {
+    // returns a copy of every difficulty's high score, used when saving the player
+    public synchronized Map<String, Integer> getHighScores() {
+        return Map.copyOf(highScoreMap);
+    }
+
+    // the best score in any difficulty, ranks the player on the overall leaderboard
+    public synchronized int getOverallHighScore() {
         return this.overallHighScore;
     }
 
-    // returns the entire score history of the player
-    public List<Integer> getScoreHistory() {
-        return Collections.unmodifiableList(scoreHistory);
+    // returns a copy of the entire score history of the player, so it cannot change while being read
+    public synchronized List<Integer> getScoreHistory() {
+        return List.copyOf(scoreHistory);
     }
 
     // currently unused due to GUI taking a while to code
@@ -0,0 +1,30 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Converts a single Player to and from bytes
+ * @note implementations must be stateless so one instance can be shared between threads,
+ * see PlayerCodecs for the available codecs
+ */
+public interface PlayerCodec {
+    /**
+     * @return the id written into file headers so a file can be read back with the codec that wrote it
+     */
+    byte id();
+
+    /**
+     * @return the name used to choose this codec, e.g. in the hangman.codec system property
+     */
+    String name();
+
+    /**
+     * writes one player, the decoder must be able to tell where the player ends
+     */
+    void encode(Player p, DataOutputStream out) throws IOException;
+
+    /**
+     * reads one player written by encode
+     */
+    Player decode(DataInputStream in) throws IOException;
+}
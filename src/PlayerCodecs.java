@@ -0,0 +1,127 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The available PlayerCodecs and the versioned player file format built on them
+ * @note a player file starts with [magic "HGMN"][format version][codec id][journal sequence][player count]
+ * followed by the players in that codec. Files from before the header existed are a bare Java serialization
+ * stream of an ArrayList, which readPlayers still accepts so they can be migrated
+ */
+public final class PlayerCodecs {
+    private static final int FILE_MAGIC = 0x48474D4E; // "HGMN"
+    private static final int FILE_VERSION = 1;
+    // the first two bytes of any Java serialization stream
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+
+    private static final List<PlayerCodec> CODECS = List.of(
+            new BinaryPlayerCodec(), new TextPlayerCodec(), new SerializedPlayerCodec());
+
+    /**
+     * the players read from a file and the journal sequence they include, 0 if the file does not say
+     */
+    public record PlayerFile(ArrayList<Player> players, long sequence) {}
+
+    private PlayerCodecs() {
+        // static helpers, never instantiated
+    }
+
+    public static List<PlayerCodec> all() {
+        return CODECS;
+    }
+
+    public static PlayerCodec byId(byte id) throws IOException {
+        for (PlayerCodec codec : CODECS) {
+            if (codec.id() == id) {
+                return codec;
+            }
+        }
+        throw new IOException("Unknown player codec id: " + id);
+    }
+
+    public static PlayerCodec byName(String name) {
+        for (PlayerCodec codec : CODECS) {
+            if (codec.name().equalsIgnoreCase(name.trim())) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown player codec: " + name);
+    }
+
+    /**
+     * @return the codec named by the hangman.codec system property, binary if it is not set
+     */
+    public static PlayerCodec configured() {
+        return byName(System.getProperty("hangman.codec", "binary"));
+    }
+
+    /**
+     * writes a player file with a versioned header, replacing the file in one step
+     */
+    public static void writePlayers(Path path, Collection<Player> players, long sequence, PlayerCodec codec) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeByte(codec.id());
+            out.writeLong(sequence);
+            out.writeInt(players.size());
+            for (Player p : players) {
+                codec.encode(p, out);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * reads a player file in any codec, or a players.txt written before the header existed
+     */
+    public static PlayerFile readPlayers(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            in.mark(4);
+            int magic = in.readInt();
+            if (magic >>> 16 == SERIALIZATION_MAGIC) {
+                in.reset();
+                return readLegacy(in);
+            }
+            if (magic != FILE_MAGIC) {
+                throw new IOException("Not a player file: " + path);
+            }
+            int version = in.readInt();
+            if (version != FILE_VERSION) {
+                throw new IOException("Unsupported player file version " + version + ": " + path);
+            }
+            PlayerCodec codec = byId(in.readByte());
+            long sequence = in.readLong();
+            int count = in.readInt();
+            ArrayList<Player> players = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                players.add(codec.decode(in));
+            }
+            return new PlayerFile(players, sequence);
+        }
+    }
+
+    /**
+     * the original format: one serialized ArrayList, followed by a journal sequence in files written by the journal
+     */
+    private static PlayerFile readLegacy(InputStream in) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(in)) {
+            @SuppressWarnings("unchecked")
+            ArrayList<Player> players = (ArrayList<Player>) ois.readObject();
+            long sequence = 0;
+            try {
+                sequence = ois.readLong();
+            } catch (EOFException e) {
+                // snapshot written before the journal existed
+            }
+            return new PlayerFile(players, sequence);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Unreadable legacy player file.", e);
+        }
+    }
+}
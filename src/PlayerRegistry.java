@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Index of players keyed by username
+ * @note lookups are O(1) instead of scanning a list, and a username can only ever belong to one player.
+ * With a loader the registry only holds players that have been looked up, the rest stay on disk
+ */
+public class PlayerRegistry {
+    // a concurrent map lets readers look players up while another thread signs up or renames a player
+    private final ConcurrentMap<String, Player> byUsername = new ConcurrentHashMap<>();
+    // reads a player that is not in memory yet, returning null if there is none
+    private final Function<String, Player> loader;
+
+    public PlayerRegistry() {
+        this.loader = username -> null;
+    }
+
+    /**
+     * @param loader reads a single player on first lookup, e.g. DataStore::loadPlayer
+     */
+    public PlayerRegistry(Function<String, Player> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * @param players loaded from the DataStore, if two share a username only the first is kept
+     */
+    public PlayerRegistry(Collection<Player> players) {
+        this();
+        for (Player p : players) {
+            byUsername.putIfAbsent(p.getUsername(), p);
+        }
+    }
+
+    /**
+     * @return the player with this username, or null if there is none
+     */
+    public Player find(String username) {
+        if (username == null) {
+            return null;
+        }
+        Player p = byUsername.get(username);
+        if (p != null) {
+            return p;
+        }
+        // read outside the map so a slow disk never holds up lookups of other usernames, if two logins of the same
+        // player race the first one in wins and both share its object
+        Player loaded = loader.apply(username);
+        if (loaded == null) {
+            return null;
+        }
+        p = byUsername.putIfAbsent(username, loaded);
+        return p != null ? p : loaded;
+    }
+
+    public boolean exists(String username) {
+        return find(username) != null;
+    }
+
+    /**
+     * adds a new player
+     * @return false if the username is already taken, in which case nothing changes
+     */
+    public boolean register(Player p) {
+        // a player who is only on disk still owns their username
+        if (exists(p.getUsername())) {
+            return false;
+        }
+        return byUsername.putIfAbsent(p.getUsername(), p) == null;
+    }
+
+    /**
+     * takes back a register call, e.g. when the new player could not be saved
+     */
+    public void unregister(Player p) {
+        byUsername.remove(p.getUsername(), p);
+    }
+
+    /**
+     * changes a player's username and moves them to the new key
+     * @return false if the new username is already taken, in which case nothing changes
+     * @throws IllegalArgumentException if Player.setUsername does not accept the new username, nothing changes either
+     */
+    public boolean rename(Player p, String newUsername) {
+        return rename(p, newUsername, () -> {
+        });
+    }
+
+    /**
+     * renames like rename(p, newUsername), running beforeRelease once the player has the new username but while the
+     * old one still finds them
+     * @param beforeRelease e.g. journaling the rename, so a lookup of the old name that misses the registry can never
+     * read the player's stale stored record and register the old name again
+     */
+    public boolean rename(Player p, String newUsername, Runnable beforeRelease) {
+        String oldUsername = p.getUsername();
+        if (oldUsername.equals(newUsername)) {
+            return true;
+        }
+        // claiming the new key first means two players can never end up with the same name
+        if (exists(newUsername) || byUsername.putIfAbsent(newUsername, p) != null) {
+            return false;
+        }
+        try {
+            p.setUsername(newUsername);
+        } catch (IllegalArgumentException e) {
+            // e.g. a name that is too long, the claim on it is given back
+            byUsername.remove(newUsername, p);
+            throw e;
+        }
+        beforeRelease.run();
+        byUsername.remove(oldUsername, p);
+        return true;
+    }
+
+    // number of players held in memory
+    public int size() {
+        return byUsername.size();
+    }
+
+    /**
+     * @return a copy of every player held in memory, in the form DataStore.savePlayers expects
+     */
+    public ArrayList<Player> snapshot() {
+        return new ArrayList<>(byUsername.values());
+    }
+}
@@ -0,0 +1,681 @@
+import java.io.*;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Random-access binary file of player records with an on-disk hash index from username to record offset
+ * @note both files are memory-mapped, so opening the store reads no players at all and one player
+ * can be read or rewritten without touching the others. Heap use does not grow with the number of accounts.
+ *
+ * Data file: a 64 byte header [magic][version][end offset][live bytes][dead bytes][journal sequence][codec id]
+ * [checked offset][clean flag], then records of [payload length][live flag][crc32][payload]. A changed player is appended
+ * as a new record and the old one is marked dead once the new one is on disk, so a crash while writing can never damage
+ * a record that is already saved.
+ *
+ * The pages of a mapped file reach the disk in any order, so after a crash the header may count records that were never
+ * written. A store that was not closed cleanly is checked from the checked offset, the end as of the last completed
+ * force, and cut back to the last whole record. Whatever is cut off is still in the journal, which is only truncated
+ * once the checkpoint that wrote it has been forced.
+ *
+ * Index file: a 32 byte header [magic][version][slot count][used slots][data end offset], then an open
+ * addressing table of 16 byte slots [username hash][record offset]. An empty slot has offset 0.
+ */
+public class PlayerStore implements Closeable {
+    private static final int DATA_MAGIC = 0x48504C53; // "HPLS"
+    private static final int INDEX_MAGIC = 0x48504C49; // "HPLI"
+    private static final int VERSION = 2;
+    private static final int DATA_HEADER = 64;
+    private static final int INDEX_HEADER = 32;
+    private static final int RECORD_HEADER = 9;
+    // the sequence number and the length of the username, a shorter record can only be a torn one
+    private static final int MIN_PAYLOAD = 10;
+    private static final int SLOT = 16;
+    private static final int INITIAL_DATA_SIZE = 1 << 20;
+    private static final int INITIAL_SLOTS = 1 << 10;
+    // dead bytes needed before vacuum rewrites the data file, so small stores are never rewritten
+    private static final long VACUUM_MIN_DEAD = 1 << 20;
+    // records decoded by one task in readAll
+    private static final int READ_CHUNK = 1024;
+
+    /**
+     * a decoded player together with the sequence number of the last journal change saved in its record
+     */
+    public record Stored(Player player, long sequence) {}
+
+    /**
+     * a run of live records copied out by readChunk
+     * @param payloads the records in file order, see decode
+     * @param next offset the following chunk starts at, 0 after the last record
+     * @param vacuums how many times the file had been vacuumed, offsets from before a vacuum are no longer valid
+     */
+    public record Chunk(List<byte[]> payloads, long next, long vacuums) {
+        public boolean isLast() {
+            return next == 0;
+        }
+    }
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private FileChannel dataChannel;
+    private FileChannel indexChannel;
+    private MappedByteBuffer data;
+    private MappedByteBuffer index;
+    private long end;
+    private long liveBytes;
+    private long deadBytes;
+    // every record before this offset is on disk, and so is the dead flag of every record it replaced
+    private long checked;
+    // true if the store was not closed cleanly, the index can not be trusted then
+    private boolean crashed;
+    // records replaced since the last force, they still count as live on disk until force marks them dead
+    private final Set<Long> superseded = new HashSet<>();
+    // highest journal sequence whose changes are all saved in this store
+    private long sequence;
+    // codec of every record in this store, chosen when the store is created
+    private PlayerCodec codec;
+    private int slots;
+    private int used;
+    // times the data file has been rewritten by maybeVacuum since the store was opened
+    private long vacuums = 0;
+
+    private PlayerStore(Path dataPath, Path indexPath) {
+        this.dataPath = dataPath;
+        this.indexPath = indexPath;
+    }
+
+    /**
+     * opens the store, creating empty files if needed
+     * @note the index is rebuilt from the data file if it is missing, was not saved with the latest data or the store
+     * was not closed cleanly
+     */
+    public static PlayerStore open(Path dataPath, Path indexPath) throws IOException {
+        PlayerStore store = new PlayerStore(dataPath, indexPath);
+        store.openData();
+        store.openIndex();
+        return store;
+    }
+
+    private void openData() throws IOException {
+        boolean fresh = !Files.exists(dataPath) || Files.size(dataPath) < DATA_HEADER;
+        dataChannel = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(dataChannel.size(), INITIAL_DATA_SIZE));
+        if (fresh) {
+            end = DATA_HEADER;
+            liveBytes = 0;
+            deadBytes = 0;
+            sequence = 0;
+            codec = PlayerCodecs.configured();
+            data.putInt(0, DATA_MAGIC);
+            data.putInt(4, VERSION);
+            data.put(40, codec.id());
+            checked = end;
+            writeDataHeader();
+        } else {
+            if (data.getInt(0) != DATA_MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException("Not a player store: " + dataPath);
+            }
+            end = data.getLong(8);
+            liveBytes = data.getLong(16);
+            deadBytes = data.getLong(24);
+            sequence = data.getLong(32);
+            codec = PlayerCodecs.byId(data.get(40));
+            checked = data.getLong(48);
+            crashed = data.get(56) != 1;
+            if (crashed) {
+                recover();
+            }
+        }
+        // cleared on disk before anything is written, so a crash from now on is noticed by the next open
+        data.put(56, (byte) 0);
+        data.force();
+    }
+
+    /**
+     * cuts the data file back to the last whole record after a crash, see the class comment
+     */
+    private void recover() {
+        end = Math.min(end, data.capacity());
+        long pos = checked >= DATA_HEADER && checked <= end ? checked : DATA_HEADER;
+        while (pos < end && isWhole(pos)) {
+            pos += RECORD_HEADER + data.getInt((int) pos);
+        }
+        if (pos < end) {
+            Metrics.increment("playerStore.recoveries");
+            end = pos;
+            // the counters included the records that were cut off
+            liveBytes = 0;
+            deadBytes = 0;
+            for (long p = DATA_HEADER; p < end; p += RECORD_HEADER + data.getInt((int) p)) {
+                if (data.get((int) p + 4) == 1) {
+                    liveBytes += RECORD_HEADER + data.getInt((int) p);
+                } else {
+                    deadBytes += RECORD_HEADER + data.getInt((int) p);
+                }
+            }
+        }
+        checked = end;
+        writeDataHeader();
+    }
+
+    // true if the record at pos fits before end and its payload matches its crc
+    private boolean isWhole(long pos) {
+        if (pos + RECORD_HEADER > end) {
+            return false;
+        }
+        int length = data.getInt((int) pos);
+        byte live = data.get((int) pos + 4);
+        if (length < MIN_PAYLOAD || length > end - pos - RECORD_HEADER || (live != 0 && live != 1)) {
+            return false;
+        }
+        byte[] payload = new byte[length];
+        data.get((int) pos + RECORD_HEADER, payload);
+        CRC32 check = new CRC32();
+        check.update(payload);
+        return (int) check.getValue() == data.getInt((int) pos + 5);
+    }
+
+    private void openIndex() throws IOException {
+        boolean usable = Files.exists(indexPath) && Files.size(indexPath) >= INDEX_HEADER;
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (usable) {
+            index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+            usable = !crashed && index.getInt(0) == INDEX_MAGIC && index.getInt(4) == VERSION && index.getLong(16) == end;
+        }
+        if (usable) {
+            slots = index.getInt(8);
+            used = index.getInt(12);
+        } else {
+            rebuildIndex(INITIAL_SLOTS);
+        }
+    }
+
+    /**
+     * @return the player stored under this username, or null if there is none
+     */
+    public synchronized Stored read(String username) throws IOException {
+        long offset = lookup(username);
+        if (offset == 0) {
+            return null;
+        }
+        return decode(payloadAt(offset));
+    }
+
+    /**
+     * saves an encoded player as a new record, replacing any record stored under the same username
+     * @param payload bytes produced by encode
+     */
+    public synchronized void write(byte[] payload) throws IOException {
+        String username = usernameOf(payload);
+        long old = lookup(username);
+        long offset = appendRecord(payload);
+        putSlot(username, offset);
+        if (old != 0) {
+            superseded.add(old);
+        }
+        maybeVacuum();
+    }
+
+    /**
+     * removes the player stored under this username, used when a player has been renamed
+     */
+    public synchronized void delete(String username) throws IOException {
+        long offset = lookup(username);
+        if (offset != 0) {
+            removeSlot(username);
+            superseded.add(offset);
+        }
+    }
+
+    /**
+     * decodes every live record in file order
+     */
+    public synchronized void forEach(Consumer<Stored> action) throws IOException {
+        long pos = DATA_HEADER;
+        while (pos < end) {
+            int length = data.getInt((int) pos);
+            if (isLive(pos)) {
+                action.accept(decode(payloadAt(pos)));
+            }
+            pos += RECORD_HEADER + length;
+        }
+    }
+
+    /**
+     * decodes every live record, in file order like forEach, in chunks spread over every core
+     * @note records have different lengths, so their offsets are found first by hopping over the record headers,
+     * which reads a few bytes per record. Checking and decoding the payloads is the slow part and is done in parallel
+     */
+    public synchronized List<Stored> readAll() throws IOException {
+        long[] offsets = new long[Math.max(used, 16)];
+        int count = 0;
+        for (long pos = DATA_HEADER; pos < end; pos += RECORD_HEADER + data.getInt((int) pos)) {
+            if (isLive(pos)) {
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                offsets[count++] = pos;
+            }
+        }
+        long[] live = offsets;
+        Stored[] players = new Stored[count];
+        try {
+            // the reads use absolute positions only, so the chunks can share the mapped buffer
+            IntStream.range(0, (count + READ_CHUNK - 1) / READ_CHUNK).parallel().forEach(chunk -> {
+                int from = chunk * READ_CHUNK;
+                int to = Math.min(players.length, from + READ_CHUNK);
+                try {
+                    for (int i = from; i < to; i++) {
+                        players[i] = decode(payloadAt(live[i]));
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return Arrays.asList(players);
+    }
+
+    /**
+     * copies out the next max live records, so the store can be read a piece at a time without holding its lock
+     * in between, the payloads are decoded by the caller
+     * @param previous the chunk read before this one, or null to start at the first record
+     * @note a vacuum moves every record, so a scan overlapping one starts again at the first record and sees some
+     * players twice. Records written during a scan may or may not be seen
+     */
+    public synchronized Chunk readChunk(Chunk previous, int max) throws IOException {
+        long pos = previous == null || previous.vacuums() != vacuums ? DATA_HEADER : previous.next();
+        List<byte[]> payloads = new ArrayList<>(max);
+        while (pos < end && payloads.size() < max) {
+            if (isLive(pos)) {
+                payloads.add(payloadAt(pos));
+            }
+            pos += RECORD_HEADER + data.getInt((int) pos);
+        }
+        return new Chunk(payloads, pos < end ? pos : 0, vacuums);
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    // records that every journal change up to this sequence is saved, takes effect on the next force
+    public synchronized void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public synchronized int size() {
+        return used;
+    }
+
+    /**
+     * forces both mapped files to disk, writing the data before the index that points into it
+     * @note the records replaced since the last force are only marked dead once their replacements are on disk,
+     * otherwise a crash could keep the dead flag and lose the new record, and with it the player
+     */
+    public synchronized void force() {
+        writeDataHeader();
+        data.force();
+        for (long offset : superseded) {
+            markDead(offset);
+        }
+        superseded.clear();
+        checked = end;
+        writeDataHeader();
+        data.force();
+        index.putLong(16, end);
+        index.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        data.put(56, (byte) 1);
+        data.force();
+        closeData();
+        closeIndex();
+    }
+
+    // releases the data mapping and its channel, the buffer must not be touched afterwards
+    private void closeData() throws IOException {
+        MappedByteBuffer mapped = data;
+        data = null;
+        unmap(mapped);
+        dataChannel.close();
+    }
+
+    private void closeIndex() throws IOException {
+        MappedByteBuffer mapped = index;
+        index = null;
+        unmap(mapped);
+        indexChannel.close();
+    }
+
+    /**
+     * releases a mapping now instead of whenever the buffer is garbage collected, Windows refuses to truncate, replace
+     * or delete a file while any mapping of it is alive
+     * @note the mapping is gone at once, so every reference to the buffer has to be dropped first. The stores are
+     * synchronized and hand out copies only, so nothing else can still be reading it
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            // sun.misc.Unsafe is in jdk.unsupported, which every JDK ships, reflection keeps javac from warning about it
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(theUnsafe.get(null), buffer);
+        } catch (ReflectiveOperationException e) {
+            // the garbage collector still releases the mapping, which is all that other systems need
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * payload layout: [sequence][username][player in the store's codec]
+     * @note the username is kept outside the codec so the index can check it without decoding the player
+     */
+    public byte[] encode(Player p, long sequence) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(sequence);
+        out.writeUTF(p.getUsername());
+        codec.encode(p, out);
+        return bytes.toByteArray();
+    }
+
+    public Stored decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long sequence = in.readLong();
+        in.readUTF();
+        return new Stored(codec.decode(in), sequence);
+    }
+
+    public PlayerCodec getCodec() {
+        return codec;
+    }
+
+    // reads only the username of an encoded player, skipping the sequence number in front of it
+    private static String usernameOf(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload, 8, payload.length - 8));
+        return in.readUTF();
+    }
+
+    // false for a dead record and for one replaced since the last force
+    private boolean isLive(long pos) {
+        return data.get((int) pos + 4) == 1 && !superseded.contains(pos);
+    }
+
+    // the journal sequence a record was saved with, the first field of its payload
+    private long sequenceAt(long offset) {
+        return data.getLong((int) offset + RECORD_HEADER);
+    }
+
+    private byte[] payloadAt(long offset) throws IOException {
+        int length = data.getInt((int) offset);
+        int crc = data.getInt((int) offset + 5);
+        byte[] payload = new byte[length];
+        data.get((int) offset + RECORD_HEADER, payload);
+        CRC32 check = new CRC32();
+        check.update(payload);
+        if ((int) check.getValue() != crc) {
+            throw new IOException("Corrupt player record at offset " + offset + " in " + dataPath);
+        }
+        return payload;
+    }
+
+    private long appendRecord(byte[] payload) throws IOException {
+        long offset = end;
+        ensureDataCapacity(offset + RECORD_HEADER + payload.length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        data.putInt((int) offset, payload.length);
+        data.put((int) offset + 4, (byte) 1);
+        data.putInt((int) offset + 5, (int) crc.getValue());
+        data.put((int) offset + RECORD_HEADER, payload);
+        end = offset + RECORD_HEADER + payload.length;
+        liveBytes += RECORD_HEADER + payload.length;
+        writeDataHeader();
+        return offset;
+    }
+
+    private void markDead(long offset) {
+        int size = RECORD_HEADER + data.getInt((int) offset);
+        data.put((int) offset + 4, (byte) 0);
+        liveBytes -= size;
+        deadBytes += size;
+        writeDataHeader();
+    }
+
+    private void writeDataHeader() {
+        data.putLong(8, end);
+        data.putLong(16, liveBytes);
+        data.putLong(24, deadBytes);
+        data.putLong(32, sequence);
+        data.putLong(48, checked);
+    }
+
+    private void ensureDataCapacity(long needed) throws IOException {
+        if (needed <= data.capacity()) {
+            return;
+        }
+        if (needed > Integer.MAX_VALUE) {
+            throw new IOException("Player store is full: " + dataPath);
+        }
+        // doubling keeps the number of remaps logarithmic in the file size
+        long size = Math.min(Integer.MAX_VALUE, Math.max(needed, (long) data.capacity() * 2));
+        data.force();
+        MappedByteBuffer old = data;
+        data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        unmap(old);
+    }
+
+    /**
+     * once more than half of the data file is superseded records, copies the live records into a fresh file
+     * @note this is the only operation that touches every record, and it runs at most once per doubling of dead space
+     */
+    private void maybeVacuum() throws IOException {
+        if (deadBytes < VACUUM_MIN_DEAD || deadBytes < liveBytes) {
+            return;
+        }
+        Path temp = dataPath.resolveSibling(dataPath.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        PlayerStore copy = new PlayerStore(temp, indexPath.resolveSibling(indexPath.getFileName() + ".tmp"));
+        copy.openData();
+        copy.sequence = sequence;
+        copy.codec = codec;
+        copy.data.put(40, codec.id());
+        // the copy is forced before it replaces the data file, so every record in it counts as checked
+        long pos = DATA_HEADER;
+        while (pos < end) {
+            int length = data.getInt((int) pos);
+            if (isLive(pos)) {
+                copy.appendRecord(payloadAt(pos));
+            }
+            pos += RECORD_HEADER + length;
+        }
+        copy.checked = copy.end;
+        copy.writeDataHeader();
+        copy.data.force();
+        // both mappings are released before the move, Windows refuses to replace a file that is still mapped
+        copy.closeData();
+        closeData();
+        Files.move(temp, dataPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // the old file is gone, and with it the records waiting to be marked dead
+        superseded.clear();
+        openData();
+        rebuildIndex(slots);
+        vacuums++;
+    }
+
+    // index
+
+    /**
+     * 64-bit FNV-1a hash of the username, wide enough that two names almost never share a hash
+     */
+    private static long hash(String username) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < username.length(); i++) {
+            h ^= username.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private int slotPosition(int slot) {
+        return INDEX_HEADER + slot * SLOT;
+    }
+
+    /**
+     * @return the record offset of the username, or 0 if it is not in the store
+     */
+    private long lookup(String username) throws IOException {
+        long h = hash(username);
+        int mask = slots - 1;
+        for (int slot = (int) h & mask; ; slot = (slot + 1) & mask) {
+            long offset = index.getLong(slotPosition(slot) + 8);
+            if (offset == 0) {
+                return 0;
+            }
+            // equal hashes are confirmed against the stored username in case two names collide
+            if (index.getLong(slotPosition(slot)) == h && username.equals(usernameOf(payloadAt(offset)))) {
+                return offset;
+            }
+        }
+    }
+
+    private void putSlot(String username, long offset) throws IOException {
+        insertSlot(username, offset);
+        // growing at 60% full keeps probe sequences short
+        if (used * 10L > slots * 6L) {
+            rebuildIndex(slots * 2);
+        }
+    }
+
+    private void insertSlot(String username, long offset) throws IOException {
+        long h = hash(username);
+        int mask = slots - 1;
+        for (int slot = (int) h & mask; ; slot = (slot + 1) & mask) {
+            long existing = index.getLong(slotPosition(slot) + 8);
+            if (existing == 0) {
+                index.putLong(slotPosition(slot), h);
+                index.putLong(slotPosition(slot) + 8, offset);
+                used++;
+                index.putInt(12, used);
+                return;
+            }
+            if (index.getLong(slotPosition(slot)) == h && username.equals(usernameOf(payloadAt(existing)))) {
+                index.putLong(slotPosition(slot) + 8, offset);
+                return;
+            }
+        }
+    }
+
+    /**
+     * removes a slot and shifts later slots of the same probe run back, so no tombstones are needed
+     */
+    private void removeSlot(String username) throws IOException {
+        long h = hash(username);
+        int mask = slots - 1;
+        int slot = (int) h & mask;
+        while (true) {
+            long offset = index.getLong(slotPosition(slot) + 8);
+            if (offset == 0) {
+                return;
+            }
+            if (index.getLong(slotPosition(slot)) == h && username.equals(usernameOf(payloadAt(offset)))) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int hole = slot;
+        for (int next = (hole + 1) & mask; index.getLong(slotPosition(next) + 8) != 0; next = (next + 1) & mask) {
+            int home = (int) index.getLong(slotPosition(next)) & mask;
+            // an entry may fill the hole only if the hole lies between its home slot and where it sits now
+            boolean movable = hole <= next ? (home <= hole || home > next) : (home <= hole && home > next);
+            if (movable) {
+                index.putLong(slotPosition(hole), index.getLong(slotPosition(next)));
+                index.putLong(slotPosition(hole) + 8, index.getLong(slotPosition(next) + 8));
+                hole = next;
+            }
+        }
+        index.putLong(slotPosition(hole), 0);
+        index.putLong(slotPosition(hole) + 8, 0);
+        used--;
+        index.putInt(12, used);
+    }
+
+    /**
+     * recreates the index with the given number of slots by scanning the data file
+     * @note if a crash left two live records for one username the one with the higher sequence wins
+     */
+    private void rebuildIndex(int slotCount) throws IOException {
+        // a first pass over the record headers counts live records so the table is sized once, before any insert
+        long live = 0;
+        for (long pos = DATA_HEADER; pos < end; pos += RECORD_HEADER + data.getInt((int) pos)) {
+            if (isLive(pos)) {
+                live++;
+            }
+        }
+        while (slotCount < INITIAL_SLOTS || live * 10L > slotCount * 6L) {
+            slotCount *= 2;
+        }
+        long size = INDEX_HEADER + (long) slotCount * SLOT;
+        // the new table is built in a file of its own and then swapped in, the old one is released first because
+        // Windows refuses to truncate or replace a file that is still mapped. A crash part way leaves an index that
+        // the next open rebuilds
+        closeIndex();
+        Path temp = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        indexChannel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        index.putInt(0, INDEX_MAGIC);
+        index.putInt(4, VERSION);
+        index.putInt(8, slotCount);
+        slots = slotCount;
+        used = 0;
+        index.putInt(12, 0);
+        long pos = DATA_HEADER;
+        while (pos < end) {
+            int length = data.getInt((int) pos);
+            if (isLive(pos)) {
+                String username = usernameOf(payloadAt(pos));
+                // a duplicate is resolved against the record the new index already holds, so nothing per player is
+                // kept on the heap
+                long existing = lookup(username);
+                if (existing == 0) {
+                    insertSlot(username, pos);
+                } else if (sequenceAt(pos) >= sequenceAt(existing)) {
+                    insertSlot(username, pos);
+                    markDead(existing);
+                } else {
+                    markDead(pos);
+                }
+            }
+            pos += RECORD_HEADER + length;
+        }
+        index.putLong(16, end);
+        index.force();
+        closeIndex();
+        Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+}
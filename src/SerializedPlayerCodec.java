@@ -0,0 +1,45 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Java object serialization of a single Player, the format players.txt has always used
+ * @note each player is written as a length-prefixed serialization stream so it can be read on its own,
+ * which repeats the class description for every player
+ */
+public class SerializedPlayerCodec implements PlayerCodec {
+    @Override
+    public byte id() {
+        return 3;
+    }
+
+    @Override
+    public String name() {
+        return "serialized";
+    }
+
+    @Override
+    public void encode(Player p, DataOutputStream out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(p);
+        }
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    @Override
+    public Player decode(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (Player) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Serialized data is not a Player.", e);
+        }
+    }
+}
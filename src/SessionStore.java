@@ -0,0 +1,263 @@
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds running sessions by id, dropping the ones left idle for too long and the least recently used ones when
+ * there are too many
+ * @note there is no background sweep. Every put and get does a few steps of eviction work, so the cost is spread
+ * over the operations and no call ever has to walk all the sessions. Evicted sessions are handed to the listener
+ * after every lock is released, so the listener may block, e.g. to record a score
+ */
+public class SessionStore<V> {
+    /**
+     * why a session was evicted
+     * EXPIRED: nobody used it for longer than the idle timeout
+     * SIZE: the store was full and it was among the least recently used
+     */
+    public enum RemovalCause { EXPIRED, SIZE }
+
+    /**
+     * told about every evicted session, but not about ones removed with remove()
+     */
+    public interface Listener<V> {
+        void evicted(String id, V value, RemovalCause cause);
+    }
+
+    // the most eviction steps done by one operation while the store is not over its size
+    private static final int STEPS_PER_OPERATION = 8;
+    // last access times are only written again after this long, so reads do not all write to shared memory
+    private static final long TOUCH_GRANULARITY = 1_000_000;
+
+    // one stored session
+    private static final class Entry<V> {
+        final String id;
+        // cleared once removed, so the queue does not keep finished sessions alive until they reach its head
+        V value;
+        volatile long lastAccess;
+        // when it was last put in the queue, only used while holding the eviction lock
+        long queuedAt;
+
+        Entry(String id, V value, long now) {
+            this.id = id;
+            this.value = value;
+            this.lastAccess = now;
+            this.queuedAt = now;
+        }
+    }
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    // entries in the order they were queued, which is oldest last access first once touched entries are requeued.
+    // Removed entries stay in here until they reach the head, where they are skipped, or until compact drops them
+    private final Queue<Entry<V>> queue = new ConcurrentLinkedQueue<>();
+    // removed or replaced entries still in the queue, which may never reach the head while it is a live idle session
+    private final AtomicInteger dead = new AtomicInteger();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final long ttl;
+    private final int maxSize;
+    private final Listener<V> listener;
+
+    /**
+     * @param idleTimeout sessions not used for this long are evicted
+     * @param maxSize the most sessions kept, the least recently used are evicted beyond it
+     */
+    public SessionStore(Duration idleTimeout, int maxSize, Listener<V> listener) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1: " + maxSize);
+        }
+        this.ttl = idleTimeout.toNanos();
+        this.maxSize = maxSize;
+        this.listener = listener;
+    }
+
+    public void put(String id, V value) {
+        long now = System.nanoTime();
+        Entry<V> entry = new Entry<>(id, value, now);
+        if (entries.put(id, entry) != null) {
+            dead.incrementAndGet();
+        }
+        queue.add(entry);
+        maintain(now, true);
+    }
+
+    /**
+     * @return the session, or null if there is none or it has been idle for too long
+     */
+    public V get(String id) {
+        long now = System.nanoTime();
+        Entry<V> entry = entries.get(id);
+        V value = null;
+        if (entry != null) {
+            if (now - entry.lastAccess > ttl) {
+                // expired but not evicted yet, it is evicted here instead of waiting to reach the head of the queue
+                if (entries.remove(id, entry)) {
+                    dead.incrementAndGet();
+                    notify(entry, RemovalCause.EXPIRED);
+                }
+            } else {
+                if (now - entry.lastAccess > TOUCH_GRANULARITY) {
+                    entry.lastAccess = now;
+                }
+                value = entry.value;
+            }
+        }
+        maintain(now, false);
+        return value;
+    }
+
+    /**
+     * removes a session without telling the listener, e.g. because its game finished normally
+     * @return the removed session, or null if there was none
+     */
+    public V remove(String id) {
+        Entry<V> entry = entries.remove(id);
+        if (entry == null) {
+            return null;
+        }
+        dead.incrementAndGet();
+        V value = entry.value;
+        entry.value = null;
+        return value;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // entries in the eviction queue, including removed ones not dropped yet, for tests
+    int queueLength() {
+        return queue.size();
+    }
+
+    /**
+     * evicts every expired session now, instead of a few at a time
+     */
+    public void cleanUp() {
+        evictionLock.lock();
+        List<Entry<V>> evicted = new ArrayList<>();
+        List<RemovalCause> causes = new ArrayList<>();
+        try {
+            long now = System.nanoTime();
+            while (step(now, evicted, causes)) {
+                // keeps going until the queue is empty or its head is not due yet
+            }
+            compact();
+        } finally {
+            evictionLock.unlock();
+        }
+        notify(evicted, causes);
+    }
+
+    /**
+     * a few steps of eviction, skipped if another thread is already evicting
+     * @param enforceSize keeps going until the store is within its size, so a burst of puts cannot outrun eviction
+     */
+    private void maintain(long now, boolean enforceSize) {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        List<Entry<V>> evicted = new ArrayList<>();
+        List<RemovalCause> causes = new ArrayList<>();
+        try {
+            int steps = 0;
+            while ((steps++ < STEPS_PER_OPERATION || (enforceSize && entries.size() > maxSize))
+                    && step(now, evicted, causes)) {
+                // each step looks at the head of the queue once
+            }
+            if (dead.get() > entries.size()) {
+                compact();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        notify(evicted, causes);
+    }
+
+    /**
+     * looks at the head of the queue, called while holding the eviction lock
+     * @return false if there was nothing to do
+     */
+    private boolean step(long now, List<Entry<V>> evicted, List<RemovalCause> causes) {
+        Entry<V> head = queue.peek();
+        if (head == null) {
+            return false;
+        }
+        if (entries.get(head.id) != head) {
+            // removed or replaced since it was queued
+            queue.poll();
+            dead.decrementAndGet();
+            return true;
+        }
+        long lastAccess = head.lastAccess;
+        if (now - lastAccess > ttl) {
+            queue.poll();
+            evict(head, RemovalCause.EXPIRED, evicted, causes);
+            return true;
+        }
+        if (lastAccess != head.queuedAt) {
+            // used since it was queued, so it moves to the back as if it had been queued at its last use
+            queue.poll();
+            head.queuedAt = lastAccess;
+            queue.add(head);
+            return true;
+        }
+        if (entries.size() > maxSize) {
+            // the head has not been used since it was queued, so nothing behind it has been idle for longer
+            queue.poll();
+            evict(head, RemovalCause.SIZE, evicted, causes);
+            return true;
+        }
+        // every entry behind the head was used more recently, so none of them has expired either
+        return false;
+    }
+
+    private void evict(Entry<V> entry, RemovalCause cause, List<Entry<V>> evicted, List<RemovalCause> causes) {
+        // a session removed by another thread in the meantime is not evicted twice
+        if (entries.remove(entry.id, entry)) {
+            evicted.add(entry);
+            causes.add(cause);
+        } else {
+            // that thread counted it as dead, but it has already left the queue
+            dead.decrementAndGet();
+        }
+    }
+
+    /**
+     * drops every removed entry from the queue, called while holding the eviction lock
+     * @note it walks the whole queue, so it only runs once there are more dead entries than live sessions. That keeps
+     * the queue under twice the number of sessions while costing each removal a constant amount of work
+     */
+    private void compact() {
+        int dropped = 0;
+        for (Iterator<Entry<V>> it = queue.iterator(); it.hasNext(); ) {
+            Entry<V> entry = it.next();
+            if (entries.get(entry.id) != entry) {
+                it.remove();
+                dropped++;
+            }
+        }
+        dead.addAndGet(-dropped);
+    }
+
+    private void notify(List<Entry<V>> evicted, List<RemovalCause> causes) {
+        for (int i = 0; i < evicted.size(); i++) {
+            notify(evicted.get(i), causes.get(i));
+        }
+    }
+
+    private void notify(Entry<V> entry, RemovalCause cause) {
+        try {
+            listener.evicted(entry.id, entry.value, cause);
+        } catch (RuntimeException e) {
+            // a failing listener must not fail the caller's operation or stop the other evictions
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Picks the best next letter for a game, the one found in the most words that still fit what has been revealed
+ * @note the words are indexed once as bitsets, one bit per word of a length: for every position and letter the words
+ * with that letter there, and for every letter the words containing it. Narrowing down the candidates is then a few
+ * ANDs over arrays of longs and counting them is a popcount, with no word ever looked at as a string.
+ * Instances are immutable, so one solver can serve every thread
+ */
+public final class Solver {
+    // used when no word in the bank fits, e.g. the word came from an older version of the list
+    private static final String FREQUENCY_ORDER = "ETAOINSHRDLCUMWFGYPBVKJXQZ";
+    // letters are 0-25, every other character shares the last index
+    private static final int OTHER = 26;
+    // one solver per bank, dropped once the bank is no longer used. Only the future is put in under the map's lock
+    private static final Map<WordBank, CompletableFuture<Solver>> SOLVERS = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // the words of one length and their bitsets, bit w of every bitset stands for words[w]
+    private static final class Group {
+        final String[] words;
+        // atPosition[i][l] has the words with letter l at position i
+        final long[][][] atPosition;
+        // containing[l] has the words with letter l anywhere
+        final long[][] containing;
+        final long[] all;
+
+        Group(List<String> list, int length) {
+            words = list.toArray(new String[0]);
+            int blocks = (words.length + 63) >>> 6;
+            atPosition = new long[length][OTHER + 1][blocks];
+            containing = new long[OTHER][blocks];
+            all = new long[blocks];
+            for (int w = 0; w < words.length; w++) {
+                int block = w >>> 6;
+                long bit = 1L << w;
+                all[block] |= bit;
+                for (int i = 0; i < length; i++) {
+                    int l = letterIndex(words[w].charAt(i));
+                    atPosition[i][l][block] |= bit;
+                    if (l != OTHER) {
+                        containing[l][block] |= bit;
+                    }
+                }
+            }
+        }
+    }
+
+    // groups by word length, null for lengths with no words
+    private final Group[] byLength;
+
+    /**
+     * @param words upper case words, e.g. WordBank.getWords()
+     */
+    public Solver(List<String> words) {
+        Map<Integer, List<String>> lists = new HashMap<>();
+        int longest = 0;
+        for (String word : words) {
+            lists.computeIfAbsent(word.length(), k -> new ArrayList<>()).add(word);
+            longest = Math.max(longest, word.length());
+        }
+        byLength = new Group[longest + 1];
+        for (Map.Entry<Integer, List<String>> e : lists.entrySet()) {
+            byLength[e.getKey()] = new Group(e.getValue(), e.getKey());
+        }
+    }
+
+    /**
+     * @return the solver for this bank, indexing its words on first use
+     */
+    public static Solver forBank(WordBank bank) {
+        CompletableFuture<Solver> solver = new CompletableFuture<>();
+        CompletableFuture<Solver> existing = SOLVERS.putIfAbsent(bank, solver);
+        if (existing != null) {
+            // built or being built by another thread, which is waited for instead of building it twice
+            return existing.join();
+        }
+        // built outside the lock, so indexing one bank never holds up the hints of games using another
+        try {
+            solver.complete(new Solver(bank.getWords()));
+        } catch (RuntimeException e) {
+            // nothing is cached on failure, so the next call will try again
+            SOLVERS.remove(bank, solver);
+            solver.completeExceptionally(e);
+            throw e;
+        }
+        return solver.join();
+    }
+
+    /**
+     * builds the solver for a bank replacing another one, if the old bank had a solver, so the first hint after a
+     * reload does not have to wait for the index. The old bank's solver is dropped once nothing uses that bank
+     */
+    static void warmUp(WordBank previous, WordBank next) {
+        if (SOLVERS.containsKey(previous)) {
+            forBank(next);
+        }
+    }
+
+    /**
+     * @param pattern the word with '_' for every hidden letter, e.g. "_PP_E"
+     * @param wrongLetters the letters guessed that are not in the word
+     * @return the letter to guess next, or 0 if every letter has been guessed
+     */
+    public char bestLetter(String pattern, String wrongLetters) {
+        int guessed = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            guessed |= letterBit(pattern.charAt(i));
+        }
+        for (int i = 0; i < wrongLetters.length(); i++) {
+            guessed |= letterBit(Character.toUpperCase(wrongLetters.charAt(i)));
+        }
+        return bestLetter(pattern, guessed);
+    }
+
+    /**
+     * @return the letter to guess next in this game, or 0 if every letter has been guessed
+     */
+    public char bestLetter(GameSession session) {
+        return bestLetter(pattern(session.getObfuscatedWord()), session.getGuessedMask());
+    }
+
+    /**
+     * @param pattern the word with '_' for every hidden letter, e.g. "_PP_E"
+     * @param guessedMask bit i set for every letter 'A' + i guessed so far, right or wrong
+     * @return the letter to guess next, or 0 if every letter has been guessed
+     */
+    public char bestLetter(String pattern, int guessedMask) {
+        Group g = group(pattern);
+        if (g != null) {
+            long[] candidates = filter(g, pattern, guessedMask);
+            // how many candidates contain each letter not guessed yet, blocks with no candidates are skipped
+            int[] counts = new int[OTHER];
+            for (int b = 0; b < candidates.length; b++) {
+                long c = candidates[b];
+                if (c == 0) {
+                    continue;
+                }
+                for (int l = 0; l < OTHER; l++) {
+                    if ((guessedMask & (1 << l)) == 0) {
+                        counts[l] += Long.bitCount(c & g.containing[l][b]);
+                    }
+                }
+            }
+            int best = -1;
+            for (int l = 0; l < OTHER; l++) {
+                if (counts[l] > 0 && (best < 0 || counts[l] > counts[best])) {
+                    best = l;
+                }
+            }
+            if (best >= 0) {
+                return (char) ('A' + best);
+            }
+        }
+        // no word fits, so the most common letter in English not guessed yet
+        for (int i = 0; i < FREQUENCY_ORDER.length(); i++) {
+            char c = FREQUENCY_ORDER.charAt(i);
+            if ((guessedMask & letterBit(c)) == 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return how many words fit the revealed letters and none of the wrong guesses
+     */
+    public int countCandidates(String pattern, int guessedMask) {
+        Group g = group(pattern);
+        if (g == null) {
+            return 0;
+        }
+        int count = 0;
+        for (long c : filter(g, pattern, guessedMask)) {
+            count += Long.bitCount(c);
+        }
+        return count;
+    }
+
+    /**
+     * @return every word that fits the revealed letters and none of the wrong guesses
+     */
+    public List<String> candidates(String pattern, int guessedMask) {
+        List<String> words = new ArrayList<>();
+        Group g = group(pattern);
+        if (g == null) {
+            return words;
+        }
+        long[] candidates = filter(g, pattern, guessedMask);
+        for (int b = 0; b < candidates.length; b++) {
+            for (long c = candidates[b]; c != 0; c &= c - 1) {
+                words.add(g.words[(b << 6) + Long.numberOfTrailingZeros(c)]);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * turns an obfuscated word as shown to the player, e.g. "A _ _ L E", into a pattern, e.g. "A__LE"
+     */
+    public static String pattern(String obfuscatedWord) {
+        char[] pattern = new char[(obfuscatedWord.length() + 1) / 2];
+        for (int i = 0; i < pattern.length; i++) {
+            pattern[i] = obfuscatedWord.charAt(i * 2);
+        }
+        return new String(pattern);
+    }
+
+    private Group group(String pattern) {
+        return pattern.length() < byLength.length ? byLength[pattern.length()] : null;
+    }
+
+    // the candidates as a bitset over the group's words
+    private static long[] filter(Group g, String pattern, int guessedMask) {
+        long[] c = g.all.clone();
+        int revealedMask = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char p = Character.toUpperCase(pattern.charAt(i));
+            if (p != '_') {
+                revealedMask |= letterBit(p);
+                and(c, g.atPosition[i][letterIndex(p)]);
+            }
+        }
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == '_') {
+                // a hidden letter cannot be one already revealed, or it would have been revealed here too
+                for (int m = revealedMask; m != 0; m &= m - 1) {
+                    andNot(c, g.atPosition[i][Integer.numberOfTrailingZeros(m)]);
+                }
+            }
+        }
+        // the wrong guesses are in none of the candidates
+        for (int m = guessedMask & ~revealedMask; m != 0; m &= m - 1) {
+            andNot(c, g.containing[Integer.numberOfTrailingZeros(m)]);
+        }
+        return c;
+    }
+
+    private static void and(long[] c, long[] bits) {
+        for (int b = 0; b < c.length; b++) {
+            c[b] &= bits[b];
+        }
+    }
+
+    private static void andNot(long[] c, long[] bits) {
+        for (int b = 0; b < c.length; b++) {
+            c[b] &= ~bits[b];
+        }
+    }
+
+    private static int letterIndex(char c) {
+        return c >= 'A' && c <= 'Z' ? c - 'A' : OTHER;
+    }
+
+    private static int letterBit(char c) {
+        return c >= 'A' && c <= 'Z' ? 1 << (c - 'A') : 0;
+    }
+}
@@ -0,0 +1,136 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Human-readable codec writing one UTF-8 line per player
+ * @note line layout: username TAB password TAB overall high score TAB Easy=40,Hard=10 TAB 40,0,10
+ * a backslash escapes tabs, newlines, commas, equals signs and backslashes inside names
+ */
+public class TextPlayerCodec implements PlayerCodec {
+    @Override
+    public byte id() {
+        return 2;
+    }
+
+    @Override
+    public String name() {
+        return "text";
+    }
+
+    @Override
+    public void encode(Player p, DataOutputStream out) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(escape(p.getUsername())).append('\t');
+        sb.append(escape(p.getPassword())).append('\t');
+        sb.append(p.getOverallHighScore()).append('\t');
+        boolean first = true;
+        for (Map.Entry<String, Integer> e : p.getHighScores().entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            sb.append(escape(e.getKey())).append('=').append(e.getValue());
+            first = false;
+        }
+        sb.append('\t');
+        first = true;
+        for (int score : p.getScoreHistory()) {
+            if (!first) {
+                sb.append(',');
+            }
+            sb.append(score);
+            first = false;
+        }
+        sb.append('\n');
+        out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public Player decode(DataInputStream in) throws IOException {
+        // reads bytes up to the newline, escaped newlines never appear raw so the first one ends the player
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new EOFException("Player line is missing its newline.");
+            }
+            line.write(b);
+        }
+        List<String> fields = split(line.toString(StandardCharsets.UTF_8), '\t');
+        if (fields.size() != 5) {
+            throw new IOException("Expected 5 fields in player line but found " + fields.size());
+        }
+        try {
+            Map<String, Integer> highScores = new HashMap<>();
+            for (String entry : split(fields.get(3), ',')) {
+                List<String> pair = split(entry, '=');
+                highScores.put(unescape(pair.get(0)), Integer.parseInt(pair.get(1)));
+            }
+            List<Integer> history = new ArrayList<>();
+            for (String score : split(fields.get(4), ',')) {
+                history.add(Integer.parseInt(score));
+            }
+            return Player.restore(unescape(fields.get(0)), unescape(fields.get(1)),
+                    Integer.parseInt(fields.get(2)), highScores, history);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IOException("Malformed player line: " + line.toString(StandardCharsets.UTF_8), e);
+        }
+    }
+
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\\', ',', '=' -> sb.append('\\').append(c);
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char next = s.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * splits on a separator that is not escaped, keeping the escapes for unescape, an empty string gives no parts
+     */
+    private static List<String> split(String s, char separator) {
+        List<String> parts = new ArrayList<>();
+        if (s.isEmpty()) {
+            return parts;
+        }
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == separator) {
+                parts.add(s.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(s.substring(start));
+        return parts;
+    }
+}
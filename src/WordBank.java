@@ -1,23 +1,54 @@
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * Loads words from a text file
+ * Loads words from a text file, or maps them from a CompactCorpus file if one has been built from it
+ * @note instances are immutable once constructed so one bank can be shared between threads, see WordBankRegistry
  */
 public class WordBank {
-    private final List<String> words = new ArrayList<>();
-    private final Random rand = new Random();
+    private final String difficulty;
+    private final List<String> words;
 
     /**
      * @param difficulty corresponding to the difficulty of the level
      * @throws IOException if the file cannot be read or contains no valid words
+     * @note words_<difficulty>.dawg is used instead of words_<difficulty>.txt when it is at least as new, e.g.
+     * after java CompactCorpus build words_hard.txt words_hard.dawg. Its words are read from the mapping as they are
+     * used rather than held on the heap
      */
     public WordBank(String difficulty) throws IOException {
+        JfrEvents.WordBankLoad event = JfrEvents.ENABLED ? JfrEvents.begin(new JfrEvents.WordBankLoad()) : null;
+        long start = System.nanoTime();
+        this.difficulty = difficulty.toLowerCase();
         String filename = String.format("words_%s.txt", difficulty.toLowerCase());
+        Path compact = Path.of(String.format("words_%s.dawg", this.difficulty));
+        boolean useCompact = Files.exists(compact) && (!Files.exists(Path.of(filename))
+                || Files.getLastModifiedTime(compact).compareTo(Files.getLastModifiedTime(Path.of(filename))) >= 0);
+        if (useCompact) {
+            words = CompactCorpus.open(compact).asList();
+            if (words.isEmpty()) {
+                throw new IOException("Word corpus is empty: " + compact);
+            }
+        } else {
+            words = readWords(filename);
+        }
+        Metrics.recordSince(Metrics.timer("wordBank.load"), start);
+        if (event != null && event.shouldCommit()) {
+            event.difficulty = this.difficulty;
+            event.words = words.size();
+            event.compact = useCompact;
+            event.commit();
+        }
+    }
+
+    private static List<String> readWords(String filename) throws IOException {
+        List<String> loaded = new ArrayList<>();
         // wraps a filereader (that reads characters from filepath) in a buffered reader to allow reading of each line at a time
         try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
             String line;
@@ -25,19 +56,36 @@ public class WordBank {
             while ((line = reader.readLine()) != null) {
                 line = line.strip();
                 if (!line.isEmpty()) {
-                    words.add(line.toUpperCase());
+                    loaded.add(line.toUpperCase());
                 }
             }
         }
-        if (words.isEmpty()) {
+        if (loaded.isEmpty()) {
             throw new IOException("Word list is empty or not found: " + filename);
         }
+        // copied into an unmodifiable list so the bank cannot change after it is published
+        return List.copyOf(loaded);
+    }
+
+    /**
+     * Returns the lower case difficulty the words were loaded for
+     */
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Returns every word in the bank, upper case, as an unmodifiable list
+     */
+    public List<String> getWords() {
+        return words;
     }
 
     /**
      * Returns a randomly selected word
      */
     public String getRandomWord() {
-        return words.get(rand.nextInt(words.size()));
+        // ThreadLocalRandom avoids every game thread contending on one shared Random
+        return words.get(ThreadLocalRandom.current().nextInt(words.size()));
     }
 }
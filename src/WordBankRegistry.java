@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Process-wide registry of word banks, one per difficulty
+ * @note each words_<difficulty>.txt file is read once and the resulting WordBank is shared by every game session.
+ * Once startWatching has been called, a changed list is loaded again in the background and swapped in, so new games
+ * use it without a restart while games already running keep their words
+ */
+public final class WordBankRegistry {
+    // keyed by the lower case difficulty so "Easy" and "easy" share the same bank
+    private static final Map<String, WordBank> banks = new ConcurrentHashMap<>();
+    // the word list files, words_<difficulty>.txt or the .dawg built from it
+    private static final Pattern WORD_FILE = Pattern.compile("words_(\\w+)\\.(txt|dawg)");
+    // how long the files must be left alone before they are reloaded, as one save can be several events
+    private static final long QUIET_MILLIS = 250;
+    private static Thread watcher;
+
+    private WordBankRegistry() {
+        // static registry, never instantiated
+    }
+
+    /**
+     * @param difficulty corresponding to the difficulty of the level
+     * @return the shared word bank, loading it from its file on first use
+     * @throws IOException if the file cannot be read or contains no valid words
+     */
+    public static WordBank get(String difficulty) throws IOException {
+        String key = difficulty.toLowerCase();
+        try {
+            // computeIfAbsent guarantees the file is only parsed once even if several threads ask at the same time
+            return banks.computeIfAbsent(key, k -> {
+                try {
+                    return new WordBank(k);
+                } catch (IOException e) {
+                    // lambdas cannot throw checked exceptions so it is wrapped and unwrapped below
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // nothing is cached on failure, so the next call will try to load the file again
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * starts a daemon thread that reloads a difficulty's bank whenever its word list file changes
+     * @note only banks already loaded are reloaded, the others load the new file when they are first used anyway.
+     * Calling it again does nothing
+     */
+    public static synchronized void startWatching() {
+        if (watcher != null) {
+            return;
+        }
+        WatchService service;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+            Path.of("").toAbsolutePath().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            // the lists loaded so far keep working, they just cannot change without a restart
+            e.printStackTrace();
+            return;
+        }
+        watcher = new Thread(() -> watch(service), "word-list-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private static void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Set<String> changed = new HashSet<>();
+                // collects events until the files have been quiet for a moment, so a half written file is not read
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            // events were lost, so any list may have changed
+                            changed.addAll(banks.keySet());
+                            continue;
+                        }
+                        Matcher m = WORD_FILE.matcher(event.context().toString());
+                        if (m.matches()) {
+                            changed.add(m.group(1).toLowerCase());
+                        }
+                    }
+                    key.reset();
+                    key = service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                for (String difficulty : changed) {
+                    reload(difficulty);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * loads a difficulty's word list again and swaps the new bank in, if the difficulty has been loaded before
+     * @return true if the new bank replaced the old one, false if it was not loaded or the new list is not valid
+     * @note the new bank is fully built, and so are its solver and selector if the old bank had them, before the
+     * swap, which is a single map update, so starting a game never waits for a reload. On failure the old bank
+     * stays in use
+     */
+    public static boolean reload(String difficulty) {
+        String key = difficulty.toLowerCase();
+        WordBank old = banks.get(key);
+        if (old == null) {
+            return false;
+        }
+        WordBank fresh;
+        try {
+            fresh = new WordBank(key);
+        } catch (IOException e) {
+            // e.g. the file is empty or was deleted, games go on with the words they had
+            e.printStackTrace();
+            Metrics.increment("wordBank.reloadErrors");
+            return false;
+        }
+        Solver.warmUp(old, fresh);
+        WordSelector.warmUp(old, fresh);
+        // running games hold their word in their GameSession, so only games started from now on see the new bank
+        return banks.replace(key, old, fresh);
+    }
+}
@@ -0,0 +1,210 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chooses the word for a new game, weighted by how well each word's rating suits the bank's difficulty and without
+ * giving a player a word they had in their last few games
+ * @note a draw takes constant time however many words there are: the weights are turned into an alias table once,
+ * so a draw is one random index and one random coin. Words a player had recently are redrawn, and the window is
+ * never more than half the bank, so a redraw is rarely needed. Randoms are per thread, so games started at the same
+ * time never wait for each other's draws
+ */
+public final class WordSelector {
+    // one selector per bank, dropped once the bank is no longer used
+    private static final Map<WordBank, WordSelector> SELECTORS = Collections.synchronizedMap(new WeakHashMap<>());
+    // draws before a recent word is accepted anyway, only reached when nearly all the weight is on recent words
+    private static final int MAX_DRAWS = 16;
+    // the lowest weight a word gets, so every word can still come up
+    private static final double MIN_WEIGHT = 0.05;
+    // solve rate by word from DifficultyCalibrator's ratings.csv, empty if there is none
+    private static volatile Map<String, Double> ratings;
+
+    private final List<String> words;
+    // alias table: slot i gives word i with probability[i], otherwise word alias[i]
+    private final double[] probability;
+    private final int[] alias;
+    private final int window;
+    // the words each player had recently, dropped along with the player and shared with the selector of a reloaded bank
+    private final Map<Player, Recent> recent;
+
+    // the last few words given to one player, oldest first, kept as words since a list may have a word twice
+    private static final class Recent {
+        final ArrayDeque<String> order = new ArrayDeque<>();
+        final Set<String> members = new HashSet<>();
+    }
+
+    /**
+     * @param weights relative chance of each word, in the same order as the words
+     * @param window how many of a player's last words are not repeated, at most half the words
+     */
+    public WordSelector(List<String> words, double[] weights, int window) {
+        this(words, weights, window, Collections.synchronizedMap(new WeakHashMap<>()));
+    }
+
+    private WordSelector(List<String> words, double[] weights, int window, Map<Player, Recent> recent) {
+        this.recent = recent;
+        if (words.isEmpty() || weights.length != words.size()) {
+            throw new IllegalArgumentException("Need one weight for each of at least one word.");
+        }
+        this.words = words;
+        this.window = Math.min(window, words.size() / 2);
+        int n = words.size();
+        probability = new double[n];
+        alias = new int[n];
+        double total = 0;
+        for (double w : weights) {
+            total += w;
+        }
+        // Vose's method: slots below the average weight are topped up from one above it
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smalls = 0;
+        int larges = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1) {
+                small[smalls++] = i;
+            } else {
+                large[larges++] = i;
+            }
+        }
+        while (smalls > 0 && larges > 0) {
+            int s = small[--smalls];
+            int l = large[--larges];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] -= 1 - scaled[s];
+            if (scaled[l] < 1) {
+                small[smalls++] = l;
+            } else {
+                large[larges++] = l;
+            }
+        }
+        // whatever is left over is 1 give or take rounding
+        while (larges > 0) {
+            probability[large[--larges]] = 1;
+        }
+        while (smalls > 0) {
+            probability[small[--smalls]] = 1;
+        }
+    }
+
+    /**
+     * @return the selector for this bank, weighted by ratings.csv if DifficultyCalibrator has written one
+     */
+    public static WordSelector forBank(WordBank bank) {
+        return SELECTORS.computeIfAbsent(bank, b -> new WordSelector(b.getWords(), weights(b),
+                Integer.getInteger("hangman.recentWords", 50)));
+    }
+
+    /**
+     * builds the selector for a bank replacing another one, before it is swapped in, with the ratings read again.
+     * Players keep their recent words, so a reload does not let them have the same words again
+     */
+    static void warmUp(WordBank previous, WordBank next) {
+        ratings = null;
+        WordSelector old = SELECTORS.get(previous);
+        Map<Player, Recent> recent = old == null ? Collections.synchronizedMap(new WeakHashMap<>()) : old.recent;
+        SELECTORS.put(next, new WordSelector(next.getWords(), weights(next),
+                Integer.getInteger("hangman.recentWords", 50), recent));
+    }
+
+    /**
+     * @return a word the player has not had in their last few games
+     */
+    public String next(Player player) {
+        Recent r = recent.computeIfAbsent(player, p -> new Recent());
+        synchronized (r) {
+            String word = words.get(draw());
+            for (int i = 1; i < MAX_DRAWS && r.members.contains(word); i++) {
+                word = words.get(draw());
+            }
+            if (window > 0) {
+                if (r.order.size() >= window) {
+                    r.members.remove(r.order.removeFirst());
+                }
+                // a word accepted while still recent is only tracked once
+                if (r.members.add(word)) {
+                    r.order.addLast(word);
+                }
+            }
+            return word;
+        }
+    }
+
+    /**
+     * @return a word drawn by weight alone
+     */
+    public String next() {
+        return words.get(draw());
+    }
+
+    private int draw() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int slot = random.nextInt(probability.length);
+        return random.nextDouble() < probability[slot] ? slot : alias[slot];
+    }
+
+    /**
+     * easy favours words that are often solved, hard the rarely solved ones and medium the ones in between.
+     * Words without a rating, or every word if there is no ratings file, get the same weight
+     */
+    private static double[] weights(WordBank bank) {
+        Map<String, Double> solveRates = ratings();
+        List<String> words = bank.getWords();
+        double[] weights = new double[words.size()];
+        for (int i = 0; i < weights.length; i++) {
+            Double rate = solveRates.get(words.get(i));
+            if (rate == null) {
+                weights[i] = 1;
+                continue;
+            }
+            double w = switch (bank.getDifficulty()) {
+                case "easy" -> rate;
+                case "hard" -> 1 - rate;
+                default -> 1 - 2 * Math.abs(rate - 0.5);
+            };
+            weights[i] = Math.max(MIN_WEIGHT, w);
+        }
+        return weights;
+    }
+
+    /**
+     * reads the solve rates from hangman.ratings, calibration/ratings.csv by default, once
+     */
+    private static Map<String, Double> ratings() {
+        Map<String, Double> loaded = ratings;
+        if (loaded == null) {
+            loaded = new HashMap<>();
+            Path path = Path.of(System.getProperty("hangman.ratings", "calibration/ratings.csv"));
+            if (Files.exists(path)) {
+                try {
+                    for (String line : Files.readAllLines(path)) {
+                        String[] fields = line.split(",");
+                        // word,games,solveRate,averageWrongGuesses,difficulty after the header
+                        if (fields.length >= 3 && !fields[0].equals("word")) {
+                            loaded.put(fields[0], Double.parseDouble(fields[2]));
+                        }
+                    }
+                } catch (IOException | NumberFormatException e) {
+                    // unweighted words are still playable, so a bad ratings file is reported and ignored
+                    e.printStackTrace();
+                    loaded.clear();
+                }
+            }
+            ratings = loaded;
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,266 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background writer for the DataStore journal and checkpoints
+ * @note callers hand over already encoded bytes and return straight away, a single daemon thread
+ * groups everything queued within one commit interval into a single write (group commit)
+ */
+public class WriteBehind {
+    /**
+     * how long a change may wait before it is safe on disk
+     * ASYNC: written in batches but never forced, the operating system decides when it reaches the disk
+     * GROUP_FSYNC: each batch is forced to disk, callers do not wait for it
+     * STRICT: each batch is forced to disk and callers wait until their change is included
+     */
+    public enum Durability { ASYNC, GROUP_FSYNC, STRICT }
+
+    /**
+     * work run on the writer thread once every record queued before it is in the journal
+     */
+    public interface Checkpoint {
+        void run() throws IOException;
+    }
+
+    // one queued piece of work: journal record bytes, a checkpoint, or neither for a flush marker
+    private record Task(byte[] bytes, Checkpoint checkpoint, CompletableFuture<Void> done) {
+        boolean isMarker() {
+            return bytes == null && checkpoint == null;
+        }
+    }
+
+    private final Path journalPath;
+    private final Durability durability;
+    private final long commitIntervalMillis;
+    private final int commitBatchSize;
+    private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean closed = false;
+
+    /**
+     * @param journalPath file that journal records are appended to
+     * @param durability how far a change must get before the caller may continue
+     * @param commitIntervalMillis longest time a change waits for more changes to share its write
+     * @param commitBatchSize number of queued changes that triggers a write before the interval is up
+     */
+    public WriteBehind(Path journalPath, Durability durability, long commitIntervalMillis, int commitBatchSize) {
+        this.journalPath = journalPath;
+        this.durability = durability;
+        this.commitIntervalMillis = commitIntervalMillis;
+        this.commitBatchSize = commitBatchSize;
+        thread = new Thread(this::run, "hangman-write-behind");
+        // a daemon thread does not keep the program alive, the shutdown hook flushes it instead
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * creates a writer configured from the system properties
+     * hangman.durability (async, group-fsync or strict), hangman.commitIntervalMs and hangman.commitBatchSize
+     */
+    public static WriteBehind fromSystemProperties(Path journalPath) {
+        String mode = System.getProperty("hangman.durability", "group-fsync");
+        Durability durability = Durability.valueOf(mode.trim().toUpperCase().replace('-', '_'));
+        long interval = Long.getLong("hangman.commitIntervalMs", 50);
+        int batchSize = Integer.getInteger("hangman.commitBatchSize", 256);
+        return new WriteBehind(journalPath, durability, interval, batchSize);
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * queues one encoded journal record
+     * @return completes once the record has been written, pass it to awaitDurable after releasing any locks
+     */
+    public CompletableFuture<Void> append(byte[] record) {
+        return submit(new Task(record, null, new CompletableFuture<>()));
+    }
+
+    /**
+     * queues a checkpoint, which saves the changed players elsewhere and then empties the journal
+     * @note every record queued before the checkpoint must be covered by what it saves
+     */
+    public CompletableFuture<Void> checkpoint(Checkpoint checkpoint) {
+        return submit(new Task(null, checkpoint, new CompletableFuture<>()));
+    }
+
+    /**
+     * in STRICT mode waits until the queued change has been forced to disk, otherwise returns straight away
+     */
+    public void awaitDurable(CompletableFuture<Void> done) {
+        if (durability == Durability.STRICT) {
+            done.join();
+        }
+    }
+
+    /**
+     * blocks until everything queued so far has been written and forced to disk
+     */
+    public void flush() {
+        Task marker = new Task(null, null, new CompletableFuture<>());
+        synchronized (this) {
+            // nothing is left to wait for once the writer has stopped
+            if (closed) {
+                return;
+            }
+            queue.add(marker);
+        }
+        marker.done().join();
+    }
+
+    /**
+     * writes outstanding work and stops the background thread, used by the shutdown hook
+     */
+    public void close() {
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                // the writer stops once it reaches this marker, so everything queued before it is written first
+                queue.add(new Task(null, null, new CompletableFuture<>()));
+            }
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // the closed check and the add are one step under the lock, so a task is never queued behind a stopped writer
+    private synchronized CompletableFuture<Void> submit(Task task) {
+        if (closed) {
+            throw new IllegalStateException("Write-behind writer is closed.");
+        }
+        queue.add(task);
+        return task.done();
+    }
+
+    /**
+     * background loop: wait for the first change, give others the commit interval to join it, then write them together
+     */
+    private void run() {
+        List<Task> batch = new ArrayList<>();
+        try (FileChannel journal = FileChannel.open(journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (!closed || !queue.isEmpty()) {
+                Task first;
+                try {
+                    first = queue.take();
+                } catch (InterruptedException e) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(commitIntervalMillis);
+                // a flush marker ends the batch straight away so flush() never waits out the interval
+                while (batch.size() < commitBatchSize && !batch.get(batch.size() - 1).isMarker()) {
+                    long wait = deadline - System.nanoTime();
+                    Task next;
+                    try {
+                        next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    } catch (InterruptedException e) {
+                        next = queue.poll();
+                    }
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(journal, batch);
+                batch.clear();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            Metrics.increment("writeBehind.errors");
+            // release anyone still waiting so a broken disk does not hang the game
+            failAll(batch, e);
+            List<Task> rest = new ArrayList<>();
+            synchronized (this) {
+                closed = true;
+                queue.drainTo(rest);
+            }
+            failAll(rest, e);
+        }
+    }
+
+    /**
+     * writes one batch in queue order, gathering consecutive journal records into a single write
+     */
+    private void commit(FileChannel journal, List<Task> batch) throws IOException {
+        int start = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Checkpoint checkpoint = batch.get(i).checkpoint();
+            if (checkpoint != null) {
+                // the records before the checkpoint are written first so it only ever truncates what it covers
+                write(journal, batch, start, i);
+                checkpoint.run();
+                journal.truncate(0);
+                start = i + 1;
+            }
+        }
+        JfrEvents.JournalWrite event = JfrEvents.ENABLED ? JfrEvents.begin(new JfrEvents.JournalWrite()) : null;
+        long bytes = write(journal, batch, start, batch.size());
+        boolean hasMarker = batch.stream().anyMatch(Task::isMarker);
+        boolean force = durability != Durability.ASYNC || hasMarker;
+        if (force) {
+            journal.force(false);
+        }
+        if (event != null && event.shouldCommit()) {
+            // markers and checkpoints carry no journal record
+            for (int i = start; i < batch.size(); i++) {
+                if (batch.get(i).bytes() != null) {
+                    event.records++;
+                }
+            }
+            event.bytes = bytes;
+            event.forced = force;
+            event.commit();
+        }
+        for (Task task : batch) {
+            task.done().complete(null);
+        }
+    }
+
+    // returns the number of bytes written
+    private static long write(FileChannel journal, List<Task> batch, int from, int to) throws IOException {
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            byte[] bytes = batch.get(i).bytes();
+            if (bytes != null) {
+                size += bytes.length;
+            }
+        }
+        if (size == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (int i = from; i < to; i++) {
+            byte[] bytes = batch.get(i).bytes();
+            if (bytes != null) {
+                buffer.put(bytes);
+            }
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        return size;
+    }
+
+    private static void failAll(List<Task> tasks, IOException e) {
+        for (Task task : tasks) {
+            task.done().completeExceptionally(new UncheckedIOException(e));
+        }
+    }
+}
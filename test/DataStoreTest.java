@@ -0,0 +1,147 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * journal replay after a restart, including a journal whose tail was damaged by a crash
+ */
+class DataStoreTest {
+    private static final Path JOURNAL = Path.of("players.journal");
+
+    @BeforeEach
+    void emptyStore() throws IOException {
+        DataStore.close();
+        for (String file : new String[]{"players.dat", "players.idx", "players.journal", "players.txt"}) {
+            Files.deleteIfExists(Path.of(file));
+        }
+    }
+
+    @AfterEach
+    void closeStore() throws IOException {
+        DataStore.close();
+    }
+
+    // signs up a player with one score, each change is one journal record
+    private static Player signUp(String username, int score) {
+        Player p = new Player(username, "secret");
+        assertTrue(DataStore.recordNewPlayer(p));
+        p.recordScore("Easy", score);
+        DataStore.awaitDurable(DataStore.recordScore(p, "Easy", score));
+        return p;
+    }
+
+    @Test
+    void changesSurviveARestart() throws IOException {
+        signUp("alice", 40);
+        signUp("bob", 20);
+        DataStore.close();
+
+        Player alice = DataStore.loadPlayer("alice");
+        assertNotNull(alice);
+        assertTrue(alice.checkPassword("secret"));
+        assertEquals(Map.of("Easy", 40), alice.getHighScores());
+        assertEquals(Map.of("Easy", 20), DataStore.loadPlayer("bob").getHighScores());
+    }
+
+    @Test
+    void partialRecordAtTheEndIsCutOff() throws IOException {
+        signUp("alice", 40);
+        DataStore.close();
+        long valid = Files.size(JOURNAL);
+        byte[] journal = Files.readAllBytes(JOURNAL);
+        // the start of a record as if the crash came in the middle of writing it
+        try (RandomAccessFile raf = new RandomAccessFile(JOURNAL.toFile(), "rw")) {
+            raf.seek(valid);
+            raf.write(journal, 0, 12);
+        }
+
+        assertEquals(Map.of("Easy", 40), DataStore.loadPlayer("alice").getHighScores());
+        assertEquals(valid, Files.size(JOURNAL));
+    }
+
+    @Test
+    void zeroFilledTailIsCutOff() throws IOException {
+        signUp("alice", 40);
+        DataStore.close();
+        long valid = Files.size(JOURNAL);
+        try (RandomAccessFile raf = new RandomAccessFile(JOURNAL.toFile(), "rw")) {
+            raf.setLength(valid + 4096);
+        }
+
+        assertEquals(Map.of("Easy", 40), DataStore.loadPlayer("alice").getHighScores());
+        assertEquals(valid, Files.size(JOURNAL));
+    }
+
+    @Test
+    void recordWithBadChecksumEndsTheLog() throws IOException {
+        signUp("alice", 40);
+        Player bob = new Player("bob", "secret");
+        assertTrue(DataStore.recordNewPlayer(bob));
+        DataStore.flush();
+        long beforeScore = Files.size(JOURNAL);
+        bob.recordScore("Easy", 20);
+        DataStore.awaitDurable(DataStore.recordScore(bob, "Easy", 20));
+        DataStore.close();
+        // one flipped bit in the last byte of bob's score record
+        try (RandomAccessFile raf = new RandomAccessFile(JOURNAL.toFile(), "rw")) {
+            raf.seek(raf.length() - 1);
+            int last = raf.read();
+            raf.seek(raf.length() - 1);
+            raf.write(last ^ 1);
+        }
+
+        assertEquals(Map.of("Easy", 40), DataStore.loadPlayer("alice").getHighScores());
+        // bob's signup comes before the damaged record and is kept, the score is not
+        Player reloaded = DataStore.loadPlayer("bob");
+        assertNotNull(reloaded);
+        assertTrue(reloaded.getHighScores().isEmpty());
+        assertEquals(beforeScore, Files.size(JOURNAL));
+    }
+
+    @Test
+    void writesAfterATruncatedTailAreReplayed() throws IOException {
+        signUp("alice", 40);
+        DataStore.close();
+        try (RandomAccessFile raf = new RandomAccessFile(JOURNAL.toFile(), "rw")) {
+            raf.setLength(raf.length() + 100);
+        }
+        DataStore.open();
+        signUp("carol", 30);
+        DataStore.close();
+
+        assertEquals(Map.of("Easy", 40), DataStore.loadPlayer("alice").getHighScores());
+        assertEquals(Map.of("Easy", 30), DataStore.loadPlayer("carol").getHighScores());
+    }
+
+    @Test
+    void renamedPlayerIsNotFoundUnderTheOldName() throws IOException {
+        signUp("alice", 40);
+        DataStore.close();
+        GameEngine engine = new GameEngine(new PlayerRegistry(DataStore::loadPlayer));
+        Player alice = engine.login("alice", "secret").player();
+        assertTrue(engine.renamePlayer(alice, "alicia"));
+
+        // the stored record still says alice until the next checkpoint, it must not come back from there
+        assertNull(engine.findPlayer("alice"));
+        assertSame(alice, engine.findPlayer("alicia"));
+        DataStore.close();
+        assertNull(DataStore.loadPlayer("alice"));
+        assertEquals(Map.of("Easy", 40), DataStore.loadPlayer("alicia").getHighScores());
+    }
+
+    @Test
+    void overlongUsernameIsRejectedBeforeTheJournal() throws IOException {
+        GameEngine engine = new GameEngine(new PlayerRegistry(DataStore::loadPlayer));
+        GameEngine.LoginResult result = engine.login("x".repeat(70_000), "secret");
+        assertEquals(GameEngine.LoginStatus.INVALID, result.status());
+        assertFalse(Files.exists(JOURNAL) && Files.size(JOURNAL) > 0);
+    }
+}
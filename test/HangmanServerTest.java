@@ -0,0 +1,135 @@
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * the JSON endpoints over a real connection, on a free port on localhost
+ */
+class HangmanServerTest {
+    // a word list of one word, so every game is the same
+    private static final String DIFFICULTY = "servertest";
+
+    private HangmanServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        DataStore.close();
+        for (String file : new String[]{"players.dat", "players.idx", "players.journal", "players.txt"}) {
+            Files.deleteIfExists(Path.of(file));
+        }
+        Files.writeString(Path.of("words_" + DIFFICULTY + ".txt"), "cat\n");
+        server = new HangmanServer(new GameEngine(new PlayerRegistry(DataStore::loadPlayer)), 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        server.stop();
+        DataStore.close();
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String pathAndQuery) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + pathAndQuery))
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String login(String username) throws IOException, InterruptedException {
+        HttpResponse<String> response = post("/login", Json.object().put("username", username)
+                .put("password", "secret").toString());
+        assertEquals(200, response.statusCode(), response.body());
+        return Json.parse(response.body()).get("token");
+    }
+
+    @Test
+    void signUpAndLogInAgain() throws IOException, InterruptedException {
+        HttpResponse<String> first = post("/login", "{\"username\": \"alice\", \"password\": \"secret\"}");
+        assertEquals(200, first.statusCode());
+        assertEquals("SIGNED_UP", Json.parse(first.body()).get("status"));
+
+        HttpResponse<String> again = post("/login", "{\"username\": \"alice\", \"password\": \"secret\"}");
+        assertEquals("LOGGED_IN", Json.parse(again.body()).get("status"));
+        HttpResponse<String> wrong = post("/login", "{\"username\": \"alice\", \"password\": \"guess\"}");
+        assertEquals(401, wrong.statusCode());
+    }
+
+    @Test
+    void wonGameIsScoredAndRanked() throws IOException, InterruptedException {
+        String token = login("alice");
+        HttpResponse<String> started = post("/startNewGame", Json.object().put("token", token)
+                .put("difficulty", DIFFICULTY).toString());
+        assertEquals(200, started.statusCode(), started.body());
+        Map<String, String> game = Json.parse(started.body());
+        assertEquals("_ _ _", game.get("word"));
+
+        String last = null;
+        for (String letter : new String[]{"c", "a", "t"}) {
+            HttpResponse<String> guessed = post("/handleGuess", Json.object().put("token", token)
+                    .put("sessionId", game.get("sessionId")).put("letter", letter).toString());
+            assertEquals(200, guessed.statusCode(), guessed.body());
+            assertTrue(guessed.body().contains("\"correct\":true"), guessed.body());
+            last = guessed.body();
+        }
+        assertTrue(last.contains("\"word\":\"C A T\""), last);
+
+        Map<String, String> highScore = Json.parse(get("/getHighScore?token=" + token + "&difficulty=" + DIFFICULTY).body());
+        assertTrue(Integer.parseInt(highScore.get("highScore")) > 0);
+        String leaderboard = get("/getLeaderboard?token=" + token + "&difficulty=" + DIFFICULTY).body();
+        assertTrue(leaderboard.contains("\"username\":\"alice\""), leaderboard);
+        assertTrue(leaderboard.contains("\"rank\":1"), leaderboard);
+    }
+
+    @Test
+    void tokenStopsWorkingAfterLogout() throws IOException, InterruptedException {
+        String token = login("alice");
+        assertEquals(200, get("/getHistory?token=" + token).statusCode());
+
+        HttpResponse<String> out = post("/logout", Json.object().put("token", token).toString());
+        assertEquals(200, out.statusCode());
+        assertEquals("alice", Json.parse(out.body()).get("username"));
+        assertEquals(401, get("/getHistory?token=" + token).statusCode());
+        assertEquals(401, post("/logout", Json.object().put("token", token).toString()).statusCode());
+    }
+
+    @Test
+    void anotherPlayersGameIsRefused() throws IOException, InterruptedException {
+        String alice = login("alice");
+        String bob = login("bob");
+        String sessionId = Json.parse(post("/startNewGame", Json.object().put("token", alice)
+                .put("difficulty", DIFFICULTY).toString()).body()).get("sessionId");
+
+        HttpResponse<String> response = post("/handleGuess", Json.object().put("token", bob)
+                .put("sessionId", sessionId).put("letter", "c").toString());
+        assertEquals(403, response.statusCode());
+    }
+
+    @Test
+    void badRequestsGetAnError() throws IOException, InterruptedException {
+        assertEquals(405, get("/login").statusCode());
+        HttpResponse<String> missing = post("/login", "{\"username\": \"alice\"}");
+        assertEquals(400, missing.statusCode());
+        assertNotNull(Json.parse(missing.body()).get("error"));
+        assertEquals(400, post("/login", "not json").statusCode());
+        assertEquals(401, get("/getHistory?token=nobody").statusCode());
+    }
+}
@@ -0,0 +1,157 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ranks and top K, checked against sorting every player, also while scores and usernames change
+ */
+class LeaderboardTest {
+    private static final int MAX_SCORE = 1000;
+
+    private static Player player(String username, int... scores) {
+        Player p = new Player(username, "secret");
+        for (int score : scores) {
+            p.recordScore("Easy", score);
+        }
+        return p;
+    }
+
+    // the board worked out the slow way: every player sorted, rank is one more than the players scoring higher
+    private static List<Leaderboard.Entry> bruteForce(List<Player> players) {
+        List<Leaderboard.Entry> entries = new ArrayList<>();
+        for (Player p : players) {
+            int score = p.getHighScores().get("Easy");
+            int rank = 1;
+            for (Player other : players) {
+                if (other.getHighScores().get("Easy") > score) {
+                    rank++;
+                }
+            }
+            entries.add(new Leaderboard.Entry(p.getUsername(), score, rank));
+        }
+        entries.sort(Comparator.comparingInt(Leaderboard.Entry::score).reversed()
+                .thenComparing(Leaderboard.Entry::username));
+        return entries;
+    }
+
+    @Test
+    void playersWithTheSameScoreShareARank() {
+        Leaderboard leaderboard = new Leaderboard(MAX_SCORE);
+        List<Player> players = List.of(player("alice", 40), player("bob", 70), player("carol", 40), player("dave", 10));
+        players.forEach(leaderboard::update);
+
+        assertEquals(bruteForce(players), leaderboard.top("Easy", 10));
+        assertEquals(List.of(new Leaderboard.Entry("bob", 70, 1), new Leaderboard.Entry("alice", 40, 2)),
+                leaderboard.top("easy", 2));
+        assertEquals(new Leaderboard.Entry("carol", 40, 2), leaderboard.rank("Easy", "carol"));
+        assertEquals(new Leaderboard.Entry("dave", 10, 4), leaderboard.rank(Leaderboard.OVERALL, "dave"));
+        assertNull(leaderboard.rank("Easy", "erin"));
+        assertNull(leaderboard.rank("Hard", "alice"));
+        assertTrue(leaderboard.top("Hard", 10).isEmpty());
+    }
+
+    @Test
+    void scoreOnlyMovesUp() {
+        Leaderboard leaderboard = new Leaderboard(MAX_SCORE);
+        Player alice = player("alice", 40);
+        leaderboard.update(alice);
+        // e.g. a copy read from disk before the better game was saved
+        leaderboard.update(player("alice", 20));
+        assertEquals(40, leaderboard.rank("Easy", "alice").score());
+
+        alice.recordScore("Easy", 90);
+        leaderboard.update(alice);
+        assertEquals(List.of(new Leaderboard.Entry("alice", 90, 1)), leaderboard.top("Easy", 10));
+        assertEquals(1, leaderboard.size("Easy"));
+    }
+
+    @Test
+    void renameMovesTheScores() {
+        Leaderboard leaderboard = new Leaderboard(MAX_SCORE);
+        Player alice = player("alice", 40);
+        leaderboard.update(alice);
+        leaderboard.update(player("bob", 70));
+        alice.setUsername("alicia");
+        leaderboard.rename("alice", alice);
+
+        assertNull(leaderboard.rank("Easy", "alice"));
+        assertEquals(new Leaderboard.Entry("alicia", 40, 2), leaderboard.rank("Easy", "alicia"));
+        assertEquals(2, leaderboard.size(Leaderboard.OVERALL));
+    }
+
+    @Test
+    void concurrentUpdatesAndRenamesEndAsIfSorted() throws InterruptedException {
+        Leaderboard leaderboard = new Leaderboard(MAX_SCORE);
+        int writers = 4;
+        int playersPerWriter = 50;
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < writers * playersPerWriter; i++) {
+            players.add(player("p" + i, 1));
+            leaderboard.update(players.get(i));
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<String> problems = new ConcurrentLinkedQueue<>();
+        CountDownLatch done = new CountDownLatch(writers);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            List<Player> own = players.subList(w * playersPerWriter, (w + 1) * playersPerWriter);
+            long seed = w;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 20_000; i++) {
+                    Player p = own.get(random.nextInt(own.size()));
+                    if (random.nextInt(20) == 0) {
+                        String old = p.getUsername();
+                        p.setUsername(old.split("-")[0] + "-" + i);
+                        leaderboard.rename(old, p);
+                    } else {
+                        p.recordScore("Easy", random.nextInt(MAX_SCORE + 1));
+                        leaderboard.update(p);
+                    }
+                }
+                done.countDown();
+            }));
+        }
+        // readers check what must hold at any moment: best first, nobody twice, no more than asked for
+        Thread reader = new Thread(() -> {
+            while (writing.get()) {
+                List<Leaderboard.Entry> top = leaderboard.top("Easy", 20);
+                Set<String> seen = new HashSet<>();
+                for (int i = 0; i < top.size(); i++) {
+                    if (!seen.add(top.get(i).username())) {
+                        problems.add("listed twice: " + top);
+                    }
+                    if (i > 0 && top.get(i).score() > top.get(i - 1).score()) {
+                        problems.add("out of order: " + top);
+                    }
+                }
+                if (top.size() > 20) {
+                    problems.add("too many: " + top);
+                }
+            }
+        });
+        threads.forEach(Thread::start);
+        reader.start();
+        done.await();
+        writing.set(false);
+        reader.join();
+
+        assertTrue(problems.isEmpty(), () -> problems.peek());
+        List<Leaderboard.Entry> expected = bruteForce(players);
+        assertEquals(expected, leaderboard.top("Easy", players.size()));
+        assertEquals(players.size(), leaderboard.size("Easy"));
+        for (Leaderboard.Entry e : expected) {
+            assertEquals(e, leaderboard.rank("Easy", e.username()));
+        }
+    }
+}
@@ -0,0 +1,208 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * the store on its own: reopening, index growth, vacuum and a data file whose tail was torn by a crash
+ */
+class PlayerStoreTest {
+    @TempDir
+    Path dir;
+
+    private PlayerStore open() throws IOException {
+        return PlayerStore.open(dir.resolve("players.dat"), dir.resolve("players.idx"));
+    }
+
+    private static void save(PlayerStore store, String username, int score, long sequence) throws IOException {
+        Player p = new Player(username, "secret");
+        p.recordScore("Easy", score);
+        store.write(store.encode(p, sequence));
+    }
+
+    private static int scoreOf(PlayerStore store, String username) throws IOException {
+        PlayerStore.Stored stored = store.read(username);
+        assertNotNull(stored, username);
+        return stored.player().getHighScores().get("Easy");
+    }
+
+    @Test
+    void playersSurviveAReopen() throws IOException {
+        try (PlayerStore store = open()) {
+            save(store, "alice", 40, 1);
+            save(store, "bob", 20, 2);
+            save(store, "alice", 45, 3);
+            store.setSequence(3);
+        }
+        try (PlayerStore store = open()) {
+            assertEquals(2, store.size());
+            assertEquals(3, store.getSequence());
+            assertEquals(45, scoreOf(store, "alice"));
+            assertEquals(20, scoreOf(store, "bob"));
+            assertEquals(2, store.readAll().size());
+        }
+    }
+
+    @Test
+    void replacedRecordIsNotScannedBeforeTheNextForce() throws IOException {
+        try (PlayerStore store = open()) {
+            save(store, "alice", 40, 1);
+            store.force();
+            save(store, "alice", 45, 2);
+            assertEquals(1, store.readAll().size());
+            assertEquals(1, store.readChunk(null, 10).payloads().size());
+            assertEquals(45, scoreOf(store, "alice"));
+        }
+    }
+
+    @Test
+    void deletedPlayerIsGoneAfterAReopen() throws IOException {
+        try (PlayerStore store = open()) {
+            save(store, "alice", 40, 1);
+            save(store, "bob", 20, 2);
+            store.delete("alice");
+            assertNull(store.read("alice"));
+        }
+        try (PlayerStore store = open()) {
+            assertNull(store.read("alice"));
+            assertEquals(1, store.size());
+        }
+    }
+
+    @Test
+    void indexGrowsPastItsInitialSize() throws IOException {
+        int players = 5000;
+        try (PlayerStore store = open()) {
+            for (int i = 0; i < players; i++) {
+                save(store, "p" + i, i, i + 1);
+            }
+            assertEquals(players, store.size());
+            for (int i = 0; i < players; i++) {
+                assertEquals(i, scoreOf(store, "p" + i));
+            }
+        }
+        try (PlayerStore store = open()) {
+            assertEquals(players, store.size());
+            assertEquals(1234, scoreOf(store, "p1234"));
+            assertNull(store.read("p" + players));
+        }
+    }
+
+    @Test
+    void vacuumKeepsTheLatestRecordOfEveryPlayer() throws IOException {
+        int players = 100;
+        long sequence = 0;
+        try (PlayerStore store = open()) {
+            // each round replaces every record, so dead space soon outgrows the live records
+            for (int round = 0; store.readChunk(null, 1).vacuums() == 0; round++) {
+                assertTrue(round < 10_000, "no vacuum");
+                for (int i = 0; i < players; i++) {
+                    save(store, "p" + i, round, ++sequence);
+                }
+                store.force();
+            }
+            assertEquals(players, store.size());
+            assertEquals(players, store.readAll().size());
+            for (int i = 0; i < players; i++) {
+                save(store, "p" + i, 1_000_000 + i, ++sequence);
+            }
+        }
+        try (PlayerStore store = open()) {
+            assertEquals(players, store.readAll().size());
+            for (int i = 0; i < players; i++) {
+                assertEquals(1_000_000 + i, scoreOf(store, "p" + i));
+            }
+        }
+    }
+
+    // the header is rewritten as if the store had crashed with every record after checked still unforced
+    private void crashAfter(long checked) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(dir.resolve("players.dat").toFile(), "rw")) {
+            raf.seek(48);
+            raf.writeLong(checked);
+            raf.seek(56);
+            raf.write(0);
+        }
+    }
+
+    private long endOffset() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(dir.resolve("players.dat").toFile(), "r")) {
+            raf.seek(8);
+            return raf.readLong();
+        }
+    }
+
+    @Test
+    void recordWithBadChecksumIsCutOffAfterACrash() throws IOException {
+        try (PlayerStore store = open()) {
+            save(store, "alice", 40, 1);
+            save(store, "bob", 20, 2);
+        }
+        long end = endOffset();
+        crashAfter(64);
+        // the last byte of bob's record never reached the disk
+        try (RandomAccessFile raf = new RandomAccessFile(dir.resolve("players.dat").toFile(), "rw")) {
+            raf.seek(end - 1);
+            int last = raf.read();
+            raf.seek(end - 1);
+            raf.write(last ^ 1);
+        }
+
+        try (PlayerStore store = open()) {
+            assertEquals(40, scoreOf(store, "alice"));
+            assertNull(store.read("bob"));
+            assertEquals(1, store.size());
+            // the space of the torn record is reused
+            save(store, "carol", 30, 3);
+        }
+        try (PlayerStore store = open()) {
+            assertEquals(Map.of("Easy", 30), store.read("carol").player().getHighScores());
+            assertEquals(2, store.readAll().size());
+        }
+    }
+
+    @Test
+    void headerCountingUnwrittenRecordsIsCutBack() throws IOException {
+        try (PlayerStore store = open()) {
+            save(store, "alice", 40, 1);
+        }
+        long end = endOffset();
+        crashAfter(end);
+        // the header reached the disk, the zero filled pages of the records it counts did not
+        try (RandomAccessFile raf = new RandomAccessFile(dir.resolve("players.dat").toFile(), "rw")) {
+            raf.seek(8);
+            raf.writeLong(end + 500);
+        }
+
+        try (PlayerStore store = open()) {
+            assertEquals(40, scoreOf(store, "alice"));
+            assertEquals(1, store.readAll().size());
+        }
+        assertEquals(end, endOffset());
+    }
+
+    @Test
+    void duplicateLeftByACrashIsResolvedBySequence() throws IOException {
+        try (PlayerStore store = open()) {
+            save(store, "alice", 40, 1);
+            store.force();
+            save(store, "alice", 45, 2);
+        }
+        crashAfter(64);
+        // the dead flag of the first record, which comes right after the header, never reached the disk
+        try (RandomAccessFile raf = new RandomAccessFile(dir.resolve("players.dat").toFile(), "rw")) {
+            raf.seek(64 + 4);
+            raf.write(1);
+        }
+
+        try (PlayerStore store = open()) {
+            assertEquals(45, scoreOf(store, "alice"));
+            assertEquals(1, store.readAll().size());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * eviction of idle sessions and of the least recently used ones beyond the size limit
+ */
+class SessionStoreTest {
+    // every eviction the store reported, as "id cause"
+    private final List<String> evictions = new ArrayList<>();
+
+    private SessionStore<String> store(Duration idle, int maxSize) {
+        return new SessionStore<>(idle, maxSize, (id, value, cause) -> {
+            synchronized (evictions) {
+                evictions.add(id + " " + cause);
+            }
+        });
+    }
+
+    @Test
+    void idleSessionExpires() throws InterruptedException {
+        SessionStore<String> store = store(Duration.ofMillis(50), 100);
+        store.put("a", "game a");
+        store.put("b", "game b");
+        assertEquals("game a", store.get("a"));
+        Thread.sleep(100);
+
+        assertNull(store.get("a"));
+        store.cleanUp();
+        assertEquals(0, store.size());
+        assertTrue(evictions.containsAll(List.of("a EXPIRED", "b EXPIRED")), evictions.toString());
+    }
+
+    @Test
+    void sessionInUseDoesNotExpire() throws InterruptedException {
+        SessionStore<String> store = store(Duration.ofMillis(200), 100);
+        store.put("a", "game a");
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(60);
+            assertEquals("game a", store.get("a"));
+        }
+        store.cleanUp();
+        assertEquals(1, store.size());
+        assertTrue(evictions.isEmpty());
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvictedBeyondMaxSize() throws InterruptedException {
+        SessionStore<String> store = store(Duration.ofHours(1), 3);
+        store.put("a", "game a");
+        store.put("b", "game b");
+        store.put("c", "game c");
+        // accesses are only recorded at millisecond granularity
+        Thread.sleep(5);
+        assertEquals("game a", store.get("a"));
+        store.put("d", "game d");
+
+        assertEquals(3, store.size());
+        assertNull(store.get("b"));
+        assertEquals("game a", store.get("a"));
+        assertEquals(List.of("b SIZE"), evictions);
+    }
+
+    @Test
+    void removedSessionIsNotReported() {
+        SessionStore<String> store = store(Duration.ofMillis(1), 100);
+        store.put("a", "game a");
+        assertEquals("game a", store.remove("a"));
+        assertNull(store.remove("a"));
+        store.cleanUp();
+        assertTrue(evictions.isEmpty());
+    }
+
+    @Test
+    void removedSessionsDoNotPileUpBehindAnIdleOne() {
+        SessionStore<String> store = store(Duration.ofHours(1), 1000);
+        // stays at the head of the queue, neither expired nor over the size limit
+        store.put("idle", "game");
+        for (int i = 0; i < 10_000; i++) {
+            store.put("s" + i, "game " + i);
+            store.remove("s" + i);
+        }
+
+        assertEquals(1, store.size());
+        assertTrue(store.queueLength() < 10, "queue length " + store.queueLength());
+        assertEquals("game", store.get("idle"));
+    }
+}